@@ -0,0 +1,210 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A fixed number of page frames in front of a file of NodePageFormat.PAGE_SIZE pages.
+ * A page has to be pinned while it is used and unpinned afterwards, only unpinned frames are evicted.
+ * The victim is chosen with the clock algorithm: every access sets the reference bit of the frame, the clock hand
+ * clears set bits and evicts the first unpinned frame whose bit is already clear. Dirty frames are written back when
+ * they are evicted or flushed. Not thread safe.
+ */
+public class BufferPool implements Closeable {
+    private final FileChannel channel;
+    private final Frame[] frames;
+    private final HashMap<Long, Frame> pageTable = new HashMap<>();//page -> frame that holds it
+    private int hand;//clock hand
+    private long numPages;//pages in the file (including the ones that are only in a frame so far)
+
+    //metrics
+    private long hits;
+    private long misses;
+    private long writes;
+
+    /**
+     * opens (or creates) the file at path
+     * @param numFrames number of pages the pool keeps in memory
+     */
+    public BufferPool(Path path, int numFrames) throws IOException {
+        if (numFrames < 1){
+            throw new IllegalArgumentException("numFrames has to be at least 1, was " + numFrames);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.numPages = this.channel.size() / NodePageFormat.PAGE_SIZE;
+        this.frames = new Frame[numFrames];
+        for (int i = 0; i < numFrames; i++){
+            this.frames[i] = new Frame();
+        }
+    }
+
+    /**
+     * pins page, reads it from the file if it is not in a frame
+     * @return the frame that holds page, its buffer must not be used after unpin
+     */
+    public Frame pin(long page) throws IOException {
+        if (page < 0 || page >= this.numPages){
+            throw new IllegalArgumentException("page " + page + " does not exist, the file has " + this.numPages + " pages");
+        }
+        Frame frame = this.pageTable.get(page);
+        if (frame != null){
+            this.hits++;
+        } else {
+            this.misses++;
+            frame = this.victim();
+            frame.buffer.clear();
+            long position = page * NodePageFormat.PAGE_SIZE;
+            while (frame.buffer.hasRemaining()){
+                int read = this.channel.read(frame.buffer, position + frame.buffer.position());
+                if (read < 0){//the page was allocated, but never written back -> zeros
+                    while (frame.buffer.hasRemaining()){
+                        frame.buffer.put((byte) 0);
+                    }
+                }
+            }
+            frame.page = page;
+            this.pageTable.put(page, frame);
+        }
+        frame.pinCount++;
+        frame.referenced = true;
+        return frame;
+    }
+
+    /**
+     * appends a new page (all zeros) to the file
+     * @return the pinned frame of the new page, it is dirty
+     */
+    public Frame allocate() throws IOException {
+        Frame frame = this.victim();
+        Arrays.fill(frame.buffer.array(), (byte) 0);
+        frame.page = this.numPages++;
+        frame.dirty = true;
+        frame.pinCount = 1;
+        frame.referenced = true;
+        this.pageTable.put(frame.page, frame);
+        return frame;
+    }
+
+    /**
+     * @param dirty true, if the page was modified while it was pinned
+     */
+    public void unpin(Frame frame, boolean dirty){
+        if (frame.pinCount <= 0){
+            throw new IllegalStateException("page " + frame.page + " is not pinned");
+        }
+        frame.pinCount--;
+        frame.dirty |= dirty;
+    }
+
+    /**
+     * @return an unused or evicted frame (its old page is written back, if it is dirty)
+     * @throws IllegalStateException if every frame is pinned
+     */
+    private Frame victim() throws IOException {
+        //two rounds: the first one may only clear the reference bits
+        for (int i = 0; i < 2 * this.frames.length; i++){
+            Frame frame = this.frames[this.hand];
+            this.hand = (this.hand + 1) % this.frames.length;
+            if (frame.pinCount > 0){
+                continue;
+            }
+            if (frame.referenced){
+                frame.referenced = false;
+                continue;
+            }
+            if (frame.page != -1){
+                this.writeBack(frame);
+                this.pageTable.remove(frame.page);
+                frame.page = -1;
+            }
+            return frame;
+        }
+        throw new IllegalStateException("all " + this.frames.length + " frames of the buffer pool are pinned");
+    }
+
+    private void writeBack(Frame frame) throws IOException {
+        if (!frame.dirty){
+            return;
+        }
+        frame.buffer.clear();
+        long position = frame.page * NodePageFormat.PAGE_SIZE;
+        while (frame.buffer.hasRemaining()){
+            this.channel.write(frame.buffer, position + frame.buffer.position());
+        }
+        frame.dirty = false;
+        this.writes++;
+    }
+
+    /**
+     * writes every dirty frame back and forces the file to the disk
+     */
+    public void flush() throws IOException {
+        for (Frame frame : this.frames){
+            if (frame.page != -1){
+                this.writeBack(frame);
+            }
+        }
+        this.channel.force(false);
+    }
+
+    /**
+     * flushes and closes the file
+     */
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    public long getNumPages(){
+        return this.numPages;
+    }
+
+    public int getNumFrames(){
+        return this.frames.length;
+    }
+
+    /**
+     * @return number of pins that found their page in a frame
+     */
+    public long getHits(){
+        return this.hits;
+    }
+
+    /**
+     * @return number of pins that had to read their page from the file
+     */
+    public long getMisses(){
+        return this.misses;
+    }
+
+    /**
+     * @return number of pages written back to the file
+     */
+    public long getWrites(){
+        return this.writes;
+    }
+
+    /**
+     * one page of memory in the pool
+     */
+    public static final class Frame {
+        final ByteBuffer buffer = ByteBuffer.allocate(NodePageFormat.PAGE_SIZE);
+        long page = -1;//-1 = unused
+        int pinCount;
+        boolean dirty;
+        boolean referenced;//reference bit of the clock algorithm
+
+        public long getPage(){
+            return this.page;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads keys (or values) of type T for the messages of a {@link Reconciler} and the records of a
+ * {@link WriteAheadLog}
+ */
+public interface Codec<T> {
+    void write(DataOutput out, T value) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    /**
+     * writes value as the successor of previous (e.g. as the difference to previous), used for the sorted keys of a
+     * {@link TreeSerializer} snapshot. The default writes value without previous.
+     * @param previous the value written before or null, if value is the first one
+     */
+    default void writeDelta(DataOutput out, T previous, T value) throws IOException {
+        write(out, value);
+    }
+
+    /**
+     * reads a value written by writeDelta with the same previous
+     */
+    default T readDelta(DataInput in, T previous) throws IOException {
+        return read(in);
+    }
+
+    /**
+     * writes value as a zigzag varint: 1 byte for -64 .. 63, at most 10 bytes
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0){
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7){
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0){
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("varint is longer than 10 bytes");
+    }
+
+    Codec<Integer> INTEGER = new Codec<Integer>() {
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+
+        public void writeDelta(DataOutput out, Integer previous, Integer value) throws IOException {
+            writeVarLong(out, previous == null ? value : (long) value - previous);
+        }
+
+        public Integer readDelta(DataInput in, Integer previous) throws IOException {
+            return (int) (previous == null ? readVarLong(in) : previous + readVarLong(in));
+        }
+    };
+
+    Codec<Long> LONG = new Codec<Long>() {
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+
+        public void writeDelta(DataOutput out, Long previous, Long value) throws IOException {
+            writeVarLong(out, previous == null ? value : value - previous);//an overflow of the difference cancels out in readDelta
+        }
+
+        public Long readDelta(DataInput in, Long previous) throws IOException {
+            return previous == null ? readVarLong(in) : previous + readVarLong(in);
+        }
+    };
+
+    /**
+     * Integers as zigzag varints (small absolute values take less than 4 bytes)
+     */
+    Codec<Integer> VAR_INTEGER = new Codec<Integer>() {
+        public void write(DataOutput out, Integer value) throws IOException {
+            writeVarLong(out, value);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return (int) readVarLong(in);
+        }
+
+        public void writeDelta(DataOutput out, Integer previous, Integer value) throws IOException {
+            INTEGER.writeDelta(out, previous, value);
+        }
+
+        public Integer readDelta(DataInput in, Integer previous) throws IOException {
+            return INTEGER.readDelta(in, previous);
+        }
+    };
+
+    /**
+     * Longs as zigzag varints (small absolute values take less than 8 bytes)
+     */
+    Codec<Long> VAR_LONG = new Codec<Long>() {
+        public void write(DataOutput out, Long value) throws IOException {
+            writeVarLong(out, value);
+        }
+
+        public Long read(DataInput in) throws IOException {
+            return readVarLong(in);
+        }
+
+        public void writeDelta(DataOutput out, Long previous, Long value) throws IOException {
+            LONG.writeDelta(out, previous, value);
+        }
+
+        public Long readDelta(DataInput in, Long previous) throws IOException {
+            return LONG.readDelta(in, previous);
+        }
+    };
+}
@@ -7,7 +7,7 @@ import java.util.ArrayList;
  * @param <T>
  */
 
-public class ConCatKeyMonoid<T extends Comparable<T>> implements Monoid<ConCatKeyMonoid<T>, T>{
+public class ConCatKeyMonoid<T extends Comparable<T>> implements SizedMonoid<ConCatKeyMonoid<T>, T>{
     int count;//addition - this does the same as the CountingMonoid
     long hash;//xor - this is for the hash-computation (computeFingerprints); this stores the aggregated hash value
     ArrayList<T> concatKey;//the Key will be converted to a string and concatenated
@@ -56,6 +56,10 @@ public class ConCatKeyMonoid<T extends Comparable<T>> implements Monoid<ConCatKe
         return new ConCatKeyMonoid<>(1, x.hashCode(), concatTMP, x);
     }
 
+    public int size(ConCatKeyMonoid<T> x) {
+        return x.count;
+    }
+
     public int compare(ConCatKeyMonoid<T> x, T y){
         int compare;
         T tmpX = x.greatestElement;
@@ -0,0 +1,291 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writers and readers on one shared tree (Scope.Benchmark), to see the contention of the thread-safe variants:
+ *   concurrent: {@link ConcurrentTree} (latched writers, optimistic readers)
+ *   sharded:    {@link ShardedTree} with SHARDS shards split at the quantiles of the keys
+ *   locked:     {@link Tree} behind one ReentrantReadWriteLock
+ *   persistent: {@link PersistentTree} (one writer at a time, readers work on the current snapshot)
+ * readWrite: asymmetric group of one writer (insert/delete), one searchValue and one fingerprint thread, change the
+ * number of threads per role with -tg, e.g. "-tg 1,4,4" or "-tg 4,1,1". The score of every role is reported.
+ * mixed: every thread reads with probability readPercent and writes otherwise, measure the scaling with -t, e.g.
+ *   for t in 1 2 4 8; do java -jar target/benchmarks.jar ConcurrentBenchmark.mixed -t $t -p readPercent=90; done
+ * Every write is an insert of a key that is not in the workload (key + 1), followed by the delete of it, so the size
+ * of the tree stays about the same.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 3, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConcurrentBenchmark {
+    private static final int SHARDS = 8;
+    private static final int QUERIES = 1024;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(ConcurrentBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * the operations of the benchmarks, implemented for every variant
+     */
+    private interface SharedTree {
+        void insert(Integer key);
+
+        void delete(Integer key);
+
+        Integer searchValue(Integer key);
+
+        Object fingerprint(Integer x, Integer y);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"100000"})
+        private int size;
+        @Param({"64"})
+        private int degree;
+        @Param({"concurrent", "sharded", "locked", "persistent"})
+        private String variant;
+        @Param({"uniform", "zipf"})
+        private String distribution;
+        @Param({"100"})
+        private int rangeWidth;
+
+        private SharedTree tree;
+        private int[] keys;//sorted
+        private int[] lookups;
+        private int[] rangeStarts;
+        private final AtomicInteger threads = new AtomicInteger();//gives every thread its own seed
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            Workload workload = Workload.load(distribution, size, QUERIES, SEED, Paths.get(System.getProperty("workload.dir", "target/workloads")));
+            keys = workload.getSortedKeys();
+            lookups = workload.getLookups();
+            rangeStarts = workload.getRangeStarts();
+            ExampleMonoid<Integer> monoid = new ExampleMonoid<>(0, 0, null);
+            switch (variant){
+                case "concurrent":
+                    tree = concurrent(new ConcurrentTree<Integer, Integer, ExampleMonoid<Integer>>(monoid, degree));
+                    break;
+                case "sharded":
+                    ArrayList<Integer> boundaries = new ArrayList<>();
+                    for (int i = 1; i < SHARDS; i++){
+                        boundaries.add(keys[i * size / SHARDS]);
+                    }
+                    tree = sharded(new ShardedTree<Integer, Integer, ExampleMonoid<Integer>>(monoid, degree, boundaries));
+                    break;
+                case "locked":
+                    tree = locked(new Tree<Integer, Integer, ExampleMonoid<Integer>>(monoid, degree));
+                    break;
+                case "persistent":
+                    tree = persistent(new PersistentTree<Integer, Integer, ExampleMonoid<Integer>>(monoid, degree));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown variant " + variant);
+            }
+            for (int key : workload.getKeys()){
+                tree.insert(key);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Mix {
+        @Param({"50", "90", "99"})
+        private int readPercent;
+    }
+
+    /**
+     * the position of one thread in the queries and its open write
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private long random;//xorshift state
+        private Integer inserted;//the key the last write inserted, the next write deletes it
+
+        @Setup
+        public void setup(Shared shared) {
+            random = 0x9E3779B97F4A7C15L * (shared.threads.incrementAndGet() + SEED);
+        }
+
+        private int next(int bound){
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return (int) ((random >>> 1) % bound);
+        }
+    }
+
+    private static void write(Shared shared, Cursor cursor){
+        if (cursor.inserted == null){
+            cursor.inserted = shared.keys[cursor.next(shared.size)] + 1;
+            shared.tree.insert(cursor.inserted);
+        } else {
+            shared.tree.delete(cursor.inserted);
+            cursor.inserted = null;
+        }
+    }
+
+    private static Object fingerprint(Shared shared, Cursor cursor){
+        int start = shared.rangeStarts[cursor.next(QUERIES)] % Math.max(1, shared.size - shared.rangeWidth);
+        Integer end = start + shared.rangeWidth < shared.size ? shared.keys[start + shared.rangeWidth] : null;
+        return shared.tree.fingerprint(shared.keys[start], end);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writer(Shared shared, Cursor cursor){
+        write(shared, cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Integer searcher(Shared shared, Cursor cursor){
+        return shared.tree.searchValue(shared.lookups[cursor.next(QUERIES)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Object fingerprinter(Shared shared, Cursor cursor){
+        return fingerprint(shared, cursor);
+    }
+
+    @Benchmark
+    public Object mixed(Shared shared, Mix mix, Cursor cursor){
+        if (cursor.next(100) >= mix.readPercent){
+            write(shared, cursor);
+            return null;
+        }
+        //the reads are half lookups and half fingerprints
+        if (cursor.next(2) == 0){
+            return shared.tree.searchValue(shared.lookups[cursor.next(QUERIES)]);
+        }
+        return fingerprint(shared, cursor);
+    }
+
+    /*VARIANTS*/
+    private static SharedTree concurrent(final ConcurrentTree<Integer, Integer, ExampleMonoid<Integer>> tree){
+        return new SharedTree() {
+            public void insert(Integer key) {
+                tree.insert(key, key);
+            }
+
+            public void delete(Integer key) {
+                tree.delete(key);
+            }
+
+            public Integer searchValue(Integer key) {
+                return tree.searchValue(key);
+            }
+
+            public Object fingerprint(Integer x, Integer y) {
+                return tree.fingerprint(x, y);
+            }
+        };
+    }
+
+    private static SharedTree sharded(final ShardedTree<Integer, Integer, ExampleMonoid<Integer>> tree){
+        return new SharedTree() {
+            public void insert(Integer key) {
+                tree.insert(key, key);
+            }
+
+            public void delete(Integer key) {
+                tree.delete(key);
+            }
+
+            public Integer searchValue(Integer key) {
+                return tree.searchValue(key);
+            }
+
+            public Object fingerprint(Integer x, Integer y) {
+                return tree.fingerprint(x, y);
+            }
+        };
+    }
+
+    private static SharedTree locked(final Tree<Integer, Integer, ExampleMonoid<Integer>> tree){
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        return new SharedTree() {
+            public void insert(Integer key) {
+                lock.writeLock().lock();
+                try {
+                    tree.insert(key, key);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            public void delete(Integer key) {
+                lock.writeLock().lock();
+                try {
+                    tree.delete(key);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            public Integer searchValue(Integer key) {
+                lock.readLock().lock();
+                try {
+                    return tree.searchValue(key);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+
+            public Object fingerprint(Integer x, Integer y) {
+                lock.readLock().lock();
+                try {
+                    return tree.fingerprint(x, y);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+        };
+    }
+
+    private static SharedTree persistent(final PersistentTree<Integer, Integer, ExampleMonoid<Integer>> tree){
+        return new SharedTree() {
+            public void insert(Integer key) {
+                tree.insert(key, key);
+            }
+
+            public void delete(Integer key) {
+                tree.delete(key);
+            }
+
+            public Integer searchValue(Integer key) {
+                return tree.searchValue(key);
+            }
+
+            public Object fingerprint(Integer x, Integer y) {
+                return tree.fingerprint(x, y);
+            }
+        };
+    }
+}
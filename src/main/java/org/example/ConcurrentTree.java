@@ -0,0 +1,500 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread safe {@link Tree} with optimistic lock coupling. The version latches (StampedLocks) are not stored in the
+ * nodes, every ConcurrentTree has a table of LATCHES latches and a node uses the one of its identity hash, so plain
+ * Trees pay nothing for them. Two nodes may share a latch, that only costs an unnecessary restart or wait.
+ * Writers (insert, delete) take one of two paths:
+ *   leaf-only:  if the change cannot change the structure (no split, no underflow, not the first key of a leaf),
+ *               the writer couples optimistically down to the leaf (no latches on the way) and write latches only
+ *               the leaf and its ancestors, whose labels change, for the change itself.
+ *   structural: splits, underflows and Case X write latch the path from the root to the leaf and the siblings of every
+ *               node on it top-down (the nodes a split, transfer or fuse can change) and run the {@link Tree} operation.
+ *               They are about 2/degree of the inserts.
+ * Both kinds latch the root while they change the tree, the labels have to change together with the leaf. So writers
+ * still take turns at the root, but only for the change itself (O(height) label updates for an
+ * {@link InvertibleMonoid}), the descent and the search in the leaf run in parallel.
+ * Readers (searchValue, fingerprint) take optimistic stamps of the nodes they read and validate them; if a writer
+ * changed one of these nodes in the meantime, the reader starts again. After MAX_OPTIMISTIC failed attempts a reader
+ * read latches the nodes instead (starting at the root, so no structural writer can start meanwhile) and cannot
+ * starve under a steady write load.
+ */
+public class ConcurrentTree <Key extends Comparable<Key>, Value, M>{
+    private static final int LATCHES = 1 << 12;//power of 2
+    private static final int MAX_OPTIMISTIC = 8;//optimistic attempts of a reader or leaf-only writer before it latches
+    private final Tree<Key, Value, M> tree;//the structure is only changed by structural writers that latched the root
+    private final StampedLock[] latches = new StampedLock[LATCHES];
+    private volatile Node<Key, Value, M> root;//the root for readers, set before the writer releases the latches
+
+    public ConcurrentTree(Monoid<M, Key> monoid){
+        this(monoid, Tree.DEFAULT_DEGREE);
+    }
+
+    public ConcurrentTree(Monoid<M, Key> monoid, int degree){
+        this.tree = new Tree<>(monoid, degree);
+        this.root = this.tree.root;
+        for (int i = 0; i < LATCHES; i++){
+            this.latches[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * @return the version latch of node (shared with the nodes that have the same hash)
+     */
+    private StampedLock latch(Node<Key, Value, M> node){
+        int hash = System.identityHashCode(node);
+        return this.latches[(hash ^ (hash >>> 16)) & (LATCHES - 1)];
+    }
+
+    /**
+     * inserts a key-value pair (replaces the value, if the key exists)
+     */
+    public void insert(Key key, Value value){
+        if (this.writeLeaf(key, value, true)){
+            return;
+        }
+        Latched latched = this.latchPath(key);
+        try {
+            this.tree.insert(key, value);
+            this.root = this.tree.root;
+        } finally {
+            latched.unlock();
+        }
+    }
+
+    /**
+     * deletes the key and its value, if the key exists
+     */
+    public void delete(Key key){
+        if (this.writeLeaf(key, null, false)){
+            return;
+        }
+        Latched latched = this.latchPath(key);
+        try {
+            this.tree.delete(key);
+            this.root = this.tree.root;
+        } finally {
+            latched.unlock();
+        }
+    }
+
+    /**
+     * The leaf-only write path: finds the leaf optimistically, converts its stamp to a write latch, then write latches
+     * the ancestors bottom-up with tryWriteLock (a writer that holds a node never waits for its parent, so there are
+     * no deadlocks with the top-down writers and readers) and applies the change, if it does not change the structure.
+     * The whole path is latched while the leaf and the labels change, so readers never see a new leaf with old labels.
+     * @return false, if the write has to take the structural path
+     */
+    private boolean writeLeaf(Key key, Value value, boolean insert){
+        for (int attempt = 0; attempt < MAX_OPTIMISTIC; attempt++){
+            ReadSet<Key, Value, M> read = new ReadSet<>(this, false);
+            Node<Key, Value, M> node;
+            try {
+                node = this.descend(read, key);
+            } catch (RuntimeException e){
+                read.rethrowIfValid(e);
+                continue;
+            }
+            if (node == null){
+                continue;
+            }
+            LeafNode<Key, Value, M> leaf = (LeafNode<Key, Value, M>) node;
+            StampedLock latch = this.latch(leaf);
+            long stamp = latch.tryConvertToWriteLock(read.lastStamp());
+            if (stamp == 0){
+                continue;//a writer changed the leaf (or a node with the same latch)
+            }
+            //the leaf cannot change anymore and it still covers key: its range only shrinks, if the leaf itself changes
+            Latched latched = new Latched();
+            latched.add(latch, stamp);
+            try {
+                if (leaf.parent == null){
+                    return false;//the root is only changed by structural writers
+                }
+                int i;
+                if (insert){
+                    i = leaf.searchNextBest(key);
+                    if (i < leaf.numKeys && leaf.keys[i].equals(key)){
+                        leaf.setValue(i, value);//no label changes
+                        return true;
+                    }
+                    if (leaf.numKeys >= this.tree.degree){
+                        return false;//split
+                    }
+                } else {
+                    i = leaf.indexOfKey(key);
+                    if (i == -1){
+                        return true;//key does not exist
+                    }
+                    if (i == 0 || leaf.numKeys <= this.tree.degree/2){
+                        return false;//the key may be in an InnerNode (Case X) or the leaf gets an underflow
+                    }
+                }
+                if (!this.latchAncestors(latched, leaf)){
+                    continue;
+                }
+                //the same label updates as Tree.insert and Tree.delete without a split or underflow
+                boolean incremental = this.tree.monoid instanceof InvertibleMonoid && leaf.prefixLabels == null;
+                if (insert){
+                    leaf.addKeyValueIndex(i, key, value);
+                    if (incremental){
+                        leaf.addToLabels(this.tree.monoid.mapIntoMonoid(key));
+                        return true;
+                    }
+                } else {
+                    leaf.removeKeyValueIndex(i);
+                    if (incremental){
+                        leaf.removeFromLabels(this.tree.monoid.mapIntoMonoid(key));
+                        return true;
+                    }
+                }
+                leaf.calculateLabel();
+                leaf.recalculateParentLabels();
+                return true;
+            } finally {
+                latched.unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write latches the ancestors of node bottom-up without waiting. A child is only moved or removed under the latch of
+     * its parent, so node.parent and node.indexInParent are up to date once the latch of node.parent is held.
+     * @return false, if a latch is taken or the path changed: then the caller has to release everything and restart
+     */
+    private boolean latchAncestors(Latched latched, Node<Key, Value, M> node){
+        while (true){
+            InnerNode<Key, Value, M> parent = node.parent;
+            if (parent == null){
+                return node == this.root;//a detached old root also has no parent
+            }
+            if (!latched.tryLock(parent)){
+                return false;
+            }
+            int index = node.indexInParent;
+            if (node.parent != parent || index >= parent.getSizeChildren() || parent.getChild(index) != node){
+                return false;
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Write latches the nodes a structural write of key can change top-down: the path from the root to the leaf of key
+     * and the direct siblings (same parent) of every node on the path. A latched parent cannot change its children,
+     * so the path stays valid while it is latched. New nodes of a split need no latch, readers can only reach them
+     * through their (latched) parent or the new root.
+     */
+    private Latched latchPath(Key key){
+        while (true){
+            Latched latched = new Latched();
+            Node<Key, Value, M> node = this.root;
+            latched.lock(node);
+            if (node != this.root){
+                latched.unlock();//a root split or fuse finished before we got the latch
+                continue;
+            }
+            while (node.getNodeType() == NodeType.InnerNode){
+                InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+                int index = inner.searchInNode(key);
+                if (index > 0){
+                    latched.lock(inner.getChild(index - 1));
+                }
+                latched.lock(inner.getChild(index));
+                if (index < inner.getSizeChildren() - 1){
+                    latched.lock(inner.getChild(index + 1));
+                }
+                node = inner.getChild(index);
+            }
+            return latched;
+        }
+    }
+
+    /**
+     * @return value associated with the specified key or null, does not block (unless it has to latch, see above)
+     */
+    public Value searchValue(Key key){
+        for (int attempt = 0; ; attempt++){
+            ReadSet<Key, Value, M> read = new ReadSet<>(this, attempt >= MAX_OPTIMISTIC);
+            try {
+                LeafNode<Key, Value, M> leaf = (LeafNode<Key, Value, M>) this.descend(read, key);
+                if (leaf == null){
+                    continue;
+                }
+                int index = leaf.indexOfKey(key);
+                Value value = index == -1 ? null : leaf.getValue(index);
+                if (read.validate()){
+                    return value;
+                }
+            } catch (RuntimeException e){
+                read.rethrowIfValid(e);//a writer changed the nodes while we read them -> the exception means nothing
+            } finally {
+                read.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lock coupling from the root to the leaf that should contain key, only the leaf stays in the read set
+     * (all nodes, if the read set latches)
+     * @return the leaf or null, if we have to restart
+     */
+    private Node<Key, Value, M> descend(ReadSet<Key, Value, M> read, Key key){
+        Node<Key, Value, M> node = this.startNode(read);
+        while (node != null && node.getNodeType() == NodeType.InnerNode){
+            node = this.coupleChild(read, ((InnerNode<Key, Value, M>) node).getChild(node.searchInNode(key)));
+        }
+        return node;
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) like {@link Tree#fingerprint(Comparable, Comparable)}, does not block
+     * (unless it has to latch, see above)
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     */
+    public M fingerprint(Key x, Key y){
+        Monoid<M, Key> monoid = this.tree.monoid;
+        if (x != null && y != null && x.compareTo(y) >= 0){
+            return monoid.identity();
+        }
+        restart:
+        for (int attempt = 0; ; attempt++){
+            ReadSet<Key, Value, M> read = new ReadSet<>(this, attempt >= MAX_OPTIMISTIC);
+            try {
+                //1: find the start leaf with lock coupling, only the leaf stays in the read set
+                Node<Key, Value, M> node = this.startNode(read);
+                if (node == null){
+                    continue;
+                }
+                while (node.getNodeType() == NodeType.InnerNode){
+                    InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+                    node = this.coupleChild(read, inner.getChild(x == null ? 0 : inner.searchInNode(x)));
+                    if (node == null){
+                        continue restart;
+                    }
+                }
+                //2: the same walk as Tree.computeFingerprint, every node it reads is added to the read set
+                int indexNode = x == null ? 0 : node.searchNextBest(x);
+                M acc = monoid.identity();
+                while (true){
+                    if (y == null || monoid.compare(node.label, y) < 0) {
+                        acc = monoid.combine(acc, node.aggregate(indexNode, y, node.numKeys + 1, true).getFirst());
+                        InnerNode<Key, Value, M> parent = node.parent;
+                        if (parent == null){
+                            break;//node is the root (its stamp covers the parent pointer)
+                        }
+                        int index = node.indexInParent;
+                        //the parent pointer and index of a moved child can be outdated without a change of its own version
+                        if (!read.add(parent) || index >= parent.getSizeChildren() || parent.getChild(index) != node){
+                            continue restart;
+                        }
+                        indexNode = index + 1;
+                        node = parent;
+                    } else {
+                        Pair<M, Integer> pair = node.aggregate(indexNode, y, node.numKeys, false);
+                        acc = monoid.combine(acc, pair.getFirst());
+                        if (node.getNodeType() == NodeType.LeafNode){
+                            break;
+                        }
+                        node = ((InnerNode<Key, Value, M>) node).getChild(pair.getSecond());
+                        indexNode = 0;
+                        if (!read.add(node)){
+                            continue restart;
+                        }
+                    }
+                }
+                if (read.validate()){
+                    return acc;
+                }
+            } catch (RuntimeException e){
+                read.rethrowIfValid(e);
+            } finally {
+                read.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the current root, added to the read set, or null if a writer latched it or replaced it
+     */
+    private Node<Key, Value, M> startNode(ReadSet<Key, Value, M> read){
+        Node<Key, Value, M> node = this.root;
+        if (!read.add(node) || node != this.root){//the root changed before we got the stamp -> a split or fuse of the root
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Lock coupling: adds child to the read set and then checks that the parent (the last node of the read set)
+     * did not change while we read the child pointer, afterwards only the child is kept
+     * @return child or null, if we have to restart
+     */
+    private Node<Key, Value, M> coupleChild(ReadSet<Key, Value, M> read, Node<Key, Value, M> child){
+        if (!read.add(child) || !read.validate()){
+            return null;
+        }
+        read.keepLast();
+        return child;
+    }
+
+    /**
+     * The write latches of a structural writer (every latch once, even if two nodes share it)
+     */
+    private class Latched {
+        private StampedLock[] locks = new StampedLock[16];
+        private long[] stamps = new long[16];
+        private int size;
+
+        void lock(Node<Key, Value, M> node){
+            StampedLock latch = latch(node);
+            if (!this.holds(latch)){
+                this.add(latch, latch.writeLock());
+            }
+        }
+
+        /**
+         * @return false, if another thread holds the latch of node
+         */
+        boolean tryLock(Node<Key, Value, M> node){
+            StampedLock latch = latch(node);
+            if (this.holds(latch)){
+                return true;
+            }
+            long stamp = latch.tryWriteLock();
+            if (stamp == 0){
+                return false;
+            }
+            this.add(latch, stamp);
+            return true;
+        }
+
+        private boolean holds(StampedLock latch){
+            for (int i = 0; i < this.size; i++){
+                if (this.locks[i] == latch){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(StampedLock latch, long stamp){
+            if (this.size == this.locks.length){
+                this.locks = Arrays.copyOf(this.locks, this.size * 2);
+                this.stamps = Arrays.copyOf(this.stamps, this.size * 2);
+            }
+            this.locks[this.size] = latch;
+            this.stamps[this.size++] = stamp;
+        }
+
+        void unlock(){
+            for (int i = this.size - 1; i >= 0; i--){
+                this.locks[i].unlockWrite(this.stamps[i]);
+            }
+            this.size = 0;
+        }
+    }
+
+    /**
+     * The latches a reader has read together with their optimistic stamps, or (latching = true) the read latches it
+     * holds: then add blocks instead of failing, validate is always true and unlock releases every latch.
+     */
+    private static class ReadSet <Key extends Comparable<Key>, Value, M>{
+        private final ConcurrentTree<Key, Value, M> owner;
+        private final boolean latching;
+        private StampedLock[] locks;
+        private long[] stamps;
+        private int size;
+
+        ReadSet(ConcurrentTree<Key, Value, M> owner, boolean latching){
+            this.owner = owner;
+            this.latching = latching;
+            this.locks = new StampedLock[16];
+            this.stamps = new long[16];
+            this.size = 0;
+        }
+
+        /**
+         * @return false, if a writer holds the latch of node
+         */
+        boolean add(Node<Key, Value, M> node){
+            StampedLock latch = this.owner.latch(node);
+            long stamp;
+            if (this.latching){
+                for (int i = 0; i < this.size; i++){
+                    if (this.locks[i] == latch){
+                        return true;//a second read latch could wait behind a writer that waits for the first one
+                    }
+                }
+                stamp = latch.readLock();
+            } else {
+                stamp = latch.tryOptimisticRead();
+                if (stamp == 0){
+                    return false;
+                }
+            }
+            if (this.size == this.locks.length){
+                this.locks = Arrays.copyOf(this.locks, this.size * 2);
+                this.stamps = Arrays.copyOf(this.stamps, this.size * 2);
+            }
+            this.locks[this.size] = latch;
+            this.stamps[this.size] = stamp;
+            this.size++;
+            return true;
+        }
+
+        long lastStamp(){
+            return this.stamps[this.size - 1];
+        }
+
+        /**
+         * @return true, if no node of the set was changed since it was added
+         */
+        boolean validate(){
+            if (this.latching){
+                return true;
+            }
+            for (int i = 0; i < this.size; i++){
+                if (!this.locks[i].validate(this.stamps[i])){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void keepLast(){
+            if (this.latching){
+                return;//the latches are held until unlock
+            }
+            this.locks[0] = this.locks[this.size - 1];
+            this.stamps[0] = this.stamps[this.size - 1];
+            for (int i = 1; i < this.size; i++){
+                this.locks[i] = null;
+            }
+            this.size = 1;
+        }
+
+        void unlock(){
+            if (this.latching){
+                for (int i = this.size - 1; i >= 0; i--){
+                    this.locks[i].unlockRead(this.stamps[i]);
+                }
+            }
+            this.size = 0;
+        }
+
+        /**
+         * An exception while reading optimistically is only real, if nothing changed in the meantime
+         */
+        void rethrowIfValid(RuntimeException e){
+            if (this.validate()){
+                throw e;
+            }
+        }
+    }
+}
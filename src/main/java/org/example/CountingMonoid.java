@@ -4,7 +4,7 @@ package org.example;
  * Counts T, every Element T maps to 1
  * @param <T>
  */
-public class CountingMonoid<T> implements Monoid<Integer, T>{
+public class CountingMonoid<T> implements InvertibleMonoid<Integer, T>, SizedMonoid<Integer, T>{
 
     public Integer identity() {
         return 0;
@@ -18,6 +18,14 @@ public class CountingMonoid<T> implements Monoid<Integer, T>{
         return 1;
     }
 
+    public Integer uncombine(Integer acc, Integer x) {
+        return acc-x;
+    }
+
+    public int size(Integer x) {
+        return x;
+    }
+
     @Override
     public int compare(Integer x, T y) {
         return 0;
@@ -0,0 +1,16 @@
+package org.example;
+
+/**
+ * Receives the symmetric difference of two trees computed by {@link Tree#diff(Tree, DiffListener)}, in ascending key order
+ */
+public interface DiffListener<Key> {
+    /**
+     * key is only in the other tree
+     */
+    void added(Key key);
+
+    /**
+     * key is only in this tree
+     */
+    void removed(Key key);
+}
@@ -1,12 +1,17 @@
 package org.example;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
+
 /**
  * Counts T, every Element T maps to 1
  * This is a monoid that counts elements with the count variable, saves the hash
  * @param <T>
  */
 
-public class ExampleMonoid<T extends Comparable<T>> implements Monoid<ExampleMonoid<T>, T>{
+public class ExampleMonoid<T extends Comparable<T>> implements MutableMonoid<ExampleMonoid<T>, T>, InvertibleMonoid<ExampleMonoid<T>, T>, SizedMonoid<ExampleMonoid<T>, T>{
     int count;//addition - this does the same as the CountingMonoid
     long hash;//xor - this stores the aggregated hash value
     T greatestElement;//this saves the greatest Key contained in the subtree of a node or subrange
@@ -50,6 +55,75 @@ public class ExampleMonoid<T extends Comparable<T>> implements Monoid<ExampleMon
         return new ExampleMonoid<>(1, x.hashCode(), x);
     }
 
+    /**
+     * count and hash can always be inverted, the greatestElement only if it does not come from x
+     * @return acc without x or null, if x contains the greatestElement of acc
+     */
+    public ExampleMonoid<T> uncombine(ExampleMonoid<T> acc, ExampleMonoid<T> x) {
+        if (x.greatestElement != null && (acc.greatestElement == null || x.greatestElement.compareTo(acc.greatestElement) >= 0)){
+            return null;//the greatest element of acc without x is unknown
+        }
+        return new ExampleMonoid<>(acc.count-x.count, acc.hash^x.hash, acc.greatestElement);
+    }
+
+    public int size(ExampleMonoid<T> x) {
+        return x.count;
+    }
+
+    /**
+     * @return a codec for labels (e.g. for {@link TreeSerializer}): count, hash and the greatest element (if count > 0)
+     */
+    public static <T extends Comparable<T>> Codec<ExampleMonoid<T>> codec(Codec<T> elementCodec) {
+        return new Codec<ExampleMonoid<T>>() {
+            public void write(DataOutput out, ExampleMonoid<T> value) throws IOException {
+                Codec.writeVarLong(out, value.count);
+                out.writeLong(value.hash);
+                if (value.count > 0){
+                    elementCodec.write(out, value.greatestElement);
+                }
+            }
+
+            public ExampleMonoid<T> read(DataInput in) throws IOException {
+                int count = (int) Codec.readVarLong(in);
+                long hash = in.readLong();
+                return new ExampleMonoid<>(count, hash, count > 0 ? elementCodec.read(in) : null);
+            }
+        };
+    }
+
+    public ExampleMonoid<T> newAccumulator() {
+        return new ExampleMonoid<>(0, 0, null);
+    }
+
+    public void reset(ExampleMonoid<T> acc) {
+        acc.count = 0;
+        acc.hash = 0;
+        acc.greatestElement = null;
+    }
+
+    /**
+     * works like combine(acc, x), but writes the result into acc
+     */
+    public void combineInto(ExampleMonoid<T> acc, ExampleMonoid<T> x) {
+        acc.count += x.count;
+        acc.hash ^= x.hash;
+        //null is our minimum element
+        if (acc.greatestElement == null || (x.greatestElement != null && x.greatestElement.compareTo(acc.greatestElement) > 0)){
+            acc.greatestElement = x.greatestElement;
+        }
+    }
+
+    /**
+     * works like combine(acc, mapIntoMonoid(x)), but writes the result into acc
+     */
+    public void combineKeyInto(ExampleMonoid<T> acc, T x) {
+        acc.count++;
+        acc.hash ^= x.hashCode();
+        if (acc.greatestElement == null || x.compareTo(acc.greatestElement) > 0){
+            acc.greatestElement = x;
+        }
+    }
+
     /**
      * Compares the greatestElement of a Monoid with a T element, i.e. a Key
      * @param x
@@ -69,4 +143,25 @@ public class ExampleMonoid<T extends Comparable<T>> implements Monoid<ExampleMon
         }
         return compare;//1 if x > y, 0 if =, -1 if <
     }
-}
\ No newline at end of file
+
+    /**
+     * Two monoids are equal if they have the same count, hash and greatestElement,
+     * e.g. the label of a subtree and the fingerprint of the same keys in another tree
+     */
+    @Override
+    public boolean equals(Object o){
+        if (this == o){
+            return true;
+        }
+        if (!(o instanceof ExampleMonoid)){
+            return false;
+        }
+        ExampleMonoid<?> other = (ExampleMonoid<?>) o;
+        return this.count == other.count && this.hash == other.hash && Objects.equals(this.greatestElement, other.greatestElement);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * (31 * this.count + Long.hashCode(this.hash)) + Objects.hashCode(this.greatestElement);
+    }
+}
@@ -0,0 +1,34 @@
+package org.example;
+
+/**
+ * Reusable result of {@link Tree#computeFingerprint(Comparable, Node, int, Fingerprint)}:
+ * the monoid of the subrange plus the LeafNode and index that contain the first key >= y.
+ * If the monoid is a {@link MutableMonoid}, the value is an accumulator that is overwritten by every
+ * computation, so copy it if it has to outlive the next call.
+ */
+public class Fingerprint <Key extends Comparable<Key>, Value, M>{
+    M value;
+    Node<Key, Value, M> node;
+    int index;
+
+    public Fingerprint(M value){
+        this.value = value;
+        this.node = null;
+        this.index = 0;
+    }
+
+    public M getValue(){
+        return value;
+    }
+
+    /**
+     * @return the node that contains the first key >= y or null, if there is no such key
+     */
+    public Node<Key, Value, M> getNode(){
+        return node;
+    }
+
+    public int getIndex(){
+        return index;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+/**
+ * Streams the key-value pairs of a range [x, y) of a {@link FrozenTree} in ascending order, like {@link RangeCursor}:
+ * the first LeafNode is searched once, then the cursor follows the next leaf pointers of the LeafNodes.
+ */
+public class FrozenRangeCursor {
+    private final FrozenTree tree;
+    private final Long end;//exclusive, null = unbounded
+    private long leaf;//address of the current LeafNode, -1 when the range is exhausted
+    private int numKeys;//number of keys of the current leaf
+    private int index;//the entry of leaf that next() returns next
+    private int leafEnd;//index of the first entry of leaf that is not in the range
+    private long key;
+    private long value;
+
+    /**
+     * @param leaf  the address of the LeafNode that contains the first key of the range, -1 for an empty range
+     * @param index the index of the first key >= x in leaf
+     * @param y     end of the range (exclusive), null if the range is unbounded to the right
+     */
+    FrozenRangeCursor(FrozenTree tree, long leaf, int index, Long y){
+        this.tree = tree;
+        this.end = y;
+        this.enterLeaf(leaf, index);
+    }
+
+    /**
+     * moves to the next entry of the range
+     * @return true if there is one (-> getKey, getValue), false if the range is exhausted
+     */
+    public boolean next(){
+        while (this.leaf != -1 && this.index >= this.leafEnd){
+            this.nextLeaf();
+        }
+        if (this.leaf == -1){
+            return false;
+        }
+        this.key = this.tree.leafKey(this.leaf, this.index);
+        this.value = this.tree.leafValue(this.leaf, this.numKeys, this.index);
+        this.index++;
+        return true;
+    }
+
+    /**
+     * @return the key of the entry the last next() moved to
+     */
+    public long getKey(){
+        return key;
+    }
+
+    /**
+     * @return the value of the entry the last next() moved to
+     */
+    public long getValue(){
+        return value;
+    }
+
+    private void nextLeaf(){
+        if (this.leafEnd < this.numKeys){//the range ended inside this leaf
+            this.leaf = -1;
+        } else {
+            this.enterLeaf(this.tree.nextLeaf(this.leaf), 0);
+        }
+    }
+
+    private void enterLeaf(long leaf, int index){
+        this.leaf = leaf;
+        this.index = index;
+        if (leaf != -1){
+            this.numKeys = this.tree.leafNumKeys(leaf);
+            this.leafEnd = this.end == null ? this.numKeys : Math.max(index, this.tree.leafEnd(leaf, this.numKeys, this.end));
+        }
+    }
+}
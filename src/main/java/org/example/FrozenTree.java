@@ -0,0 +1,370 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * A read-only tree that works directly on a memory mapped image written by {@link Tree#freeze(Path)}.
+ * Opening it only maps the file (no deserialization, no label calculation), the pages are loaded by the OS when they
+ * are read and are shared with every other process that maps the same file.
+ * Keys and values are longs, fingerprints are {@link LongExampleMonoid}s whose hash is the same as the hash of the
+ * ExampleMonoid of the original tree (Integer or Long keys).
+ */
+public class FrozenTree {
+    private final MappedByteBuffer[] segments;
+    private final int keyType;
+    private final long root;//address of the root node
+    private final LongExampleMonoid label;
+
+    private FrozenTree(MappedByteBuffer[] segments){
+        this.segments = segments;
+        this.keyType = getInt(0, NodePageFormat.HEADER_KEY_TYPE);
+        this.root = getLong(0, NodePageFormat.HEADER_ROOT);
+        this.label = new LongExampleMonoid((int) getLong(0, NodePageFormat.HEADER_LABEL),
+                getLong(0, NodePageFormat.HEADER_LABEL + 8), getLong(0, NodePageFormat.HEADER_LABEL + 16));
+    }
+
+    /**
+     * maps the image at path (read-only)
+     */
+    public static FrozenTree open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if (size < NodePageFormat.HEADER_SIZE){
+                throw new IOException(path + " is not a frozen tree");
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + NodePageFormat.SEGMENT_SIZE - 1) / NodePageFormat.SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++){
+                long position = i * NodePageFormat.SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(NodePageFormat.SEGMENT_SIZE, size - position));
+            }
+            if (segments[0].getInt(NodePageFormat.HEADER_MAGIC) != NodePageFormat.MAGIC){
+                throw new IOException(path + " is not a frozen tree");
+            }
+            int pageSize = segments[0].getInt(NodePageFormat.HEADER_PAGE_SIZE);
+            if (segments[0].getInt(NodePageFormat.HEADER_VERSION) != NodePageFormat.FROZEN_VERSION
+                    || pageSize < NodePageFormat.PAGE_SIZE || Integer.bitCount(pageSize) != 1){
+                throw new IOException(path + " has an unsupported version or page size");
+            }
+            return new FrozenTree(segments);
+        }
+    }
+
+    private long getLong(long node, int offset){
+        long position = node + offset;
+        return this.segments[(int) (position / NodePageFormat.SEGMENT_SIZE)].getLong((int) (position % NodePageFormat.SEGMENT_SIZE));
+    }
+
+    private int getInt(long node, int offset){
+        long position = node + offset;
+        return this.segments[(int) (position / NodePageFormat.SEGMENT_SIZE)].getInt((int) (position % NodePageFormat.SEGMENT_SIZE));
+    }
+
+    private boolean isLeaf(long node){
+        return getInt(node, NodePageFormat.NODE_TYPE) == NodePageFormat.LEAF;
+    }
+
+    private int numKeys(long node){
+        return getInt(node, NodePageFormat.NODE_NUM_KEYS);
+    }
+
+    /**
+     * @return the index of the first key >= key in the node (numKeys if there is none), like Node.searchNextBest
+     */
+    private int searchNextBest(long node, int numKeys, long key){
+        int low = 0;
+        int high = numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (getLong(node, NodePageFormat.keyOffset(mid)) < key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the child whose range contains key (= number of keys <= key), like InnerNode.searchInNode
+     */
+    private int childIndex(long node, int numKeys, long key){
+        int low = 0;
+        int high = numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (getLong(node, NodePageFormat.keyOffset(mid)) <= key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long child(long node, int numKeys, int index){
+        return getLong(node, NodePageFormat.childOffset(numKeys, index));
+    }
+
+    /**
+     * @return the address of the LeafNode that should contain key (the leftmost one, if key is null)
+     */
+    private long leafNode(Long key){
+        long node = this.root;
+        while (!isLeaf(node)){
+            int numKeys = numKeys(node);
+            node = child(node, numKeys, key == null ? 0 : childIndex(node, numKeys, key));
+        }
+        return node;
+    }
+
+    /**
+     * @return value associated with the specified key or null
+     */
+    public Long searchValue(long key){
+        long node = leafNode(key);
+        int numKeys = numKeys(node);
+        int index = searchNextBest(node, numKeys, key);
+        if (index < numKeys && getLong(node, NodePageFormat.keyOffset(index)) == key){
+            return getLong(node, NodePageFormat.valueOffset(numKeys, index));
+        }
+        return null;
+    }
+
+    /**
+     * @return the label of the whole tree
+     */
+    public LongExampleMonoid getLabel(){
+        return new LongExampleMonoid(this.label.count, this.label.hash, this.label.greatestElement);
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) from the top down: the labels of the children that lie completely
+     * inside the range are read from their parent node, only the nodes on the paths to x and y are visited
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     */
+    public LongExampleMonoid fingerprint(Long x, Long y){
+        LongExampleMonoid acc = new LongExampleMonoid(0, 0, 0);
+        if (x != null && y != null && x >= y){
+            return acc;
+        }
+        aggregate(this.root, x, y, acc);
+        return acc;
+    }
+
+    private void aggregate(long node, Long x, Long y, LongExampleMonoid acc){
+        int numKeys = numKeys(node);
+        if (isLeaf(node)){
+            int from = x == null ? 0 : searchNextBest(node, numKeys, x);
+            int to = y == null ? numKeys : searchNextBest(node, numKeys, y);
+            for (int i = from; i < to; i++){
+                long key = getLong(node, NodePageFormat.keyOffset(i));
+                combine(acc, 1, NodePageFormat.hash(key, this.keyType), key);
+            }
+            return;
+        }
+        int from = x == null ? 0 : childIndex(node, numKeys, x);
+        int to = y == null ? numKeys : childIndex(node, numKeys, y);
+        if (from == to){
+            aggregate(child(node, numKeys, from), x, y, acc);
+            return;
+        }
+        if (x == null){
+            combineChildLabel(node, numKeys, from, acc);
+        } else {
+            aggregate(child(node, numKeys, from), x, null, acc);
+        }
+        for (int i = from + 1; i < to; i++){
+            combineChildLabel(node, numKeys, i, acc);
+        }
+        if (y == null){
+            combineChildLabel(node, numKeys, to, acc);
+        } else {
+            aggregate(child(node, numKeys, to), null, y, acc);
+        }
+    }
+
+    private void combineChildLabel(long node, int numKeys, int index, LongExampleMonoid acc){
+        int offset = NodePageFormat.childLabelOffset(numKeys, index);
+        combine(acc, (int) getLong(node, offset), getLong(node, offset + 8), getLong(node, offset + 16));
+    }
+
+    /**
+     * works like LongExampleMonoid.combine(acc, (count, hash, greatest)), but writes the result into acc
+     */
+    private static void combine(LongExampleMonoid acc, int count, long hash, long greatest){
+        if (count == 0){
+            return;
+        }
+        acc.greatestElement = acc.count == 0 ? greatest : Math.max(acc.greatestElement, greatest);
+        acc.count += count;
+        acc.hash ^= hash;
+    }
+
+    /**
+     * @return a cursor over the key-value pairs in [x, y) that follows the next leaf pointers of the LeafNodes
+     */
+    public FrozenRangeCursor rangeCursor(Long x, Long y){
+        if (x != null && y != null && x >= y){
+            return new FrozenRangeCursor(this, -1, 0, y);
+        }
+        long node = leafNode(x);
+        return new FrozenRangeCursor(this, node, x == null ? 0 : searchNextBest(node, numKeys(node), x), y);
+    }
+
+    /*FOR FrozenRangeCursor*/
+    int leafNumKeys(long node){
+        return numKeys(node);
+    }
+
+    long leafKey(long node, int index){
+        return getLong(node, NodePageFormat.keyOffset(index));
+    }
+
+    long leafValue(long node, int numKeys, int index){
+        return getLong(node, NodePageFormat.valueOffset(numKeys, index));
+    }
+
+    long nextLeaf(long node){
+        return getLong(node, NodePageFormat.NODE_NEXT_LEAF);
+    }
+
+    int leafEnd(long node, int numKeys, long y){
+        return searchNextBest(node, numKeys, y);
+    }
+
+    /*FOR Tree.freeze*/
+    /**
+     * Writes the image of tree to path: first every node gets its address (and its label is calculated bottom-up),
+     * then every node is written to its address
+     */
+    static <Key extends Comparable<Key>, Value, M> void write(Tree<Key, Value, M> tree, Path path) throws IOException {
+        int pageSize = NodePageFormat.pageSize(maxNodeBytes(tree.root));
+        IdentityHashMap<Node<Key, Value, M>, Long> addresses = new IdentityHashMap<>();
+        IdentityHashMap<Node<Key, Value, M>, long[]> labels = new IdentityHashMap<>();
+        ArrayList<Node<Key, Value, M>> order = new ArrayList<>();
+        long[] end = {pageSize};//the first page is the header
+        int[] keyType = {NodePageFormat.KEY_LONG};
+        layout(tree.root, addresses, labels, order, pageSize, end, keyType);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            for (Node<Key, Value, M> node : order){
+                int numKeys = node.numKeys;
+                boolean leaf = node.getNodeType() == NodeType.LeafNode;
+                ByteBuffer buffer = ByteBuffer.allocate(NodePageFormat.nodeBytes(leaf, numKeys));
+                buffer.putInt(NodePageFormat.NODE_TYPE, leaf ? NodePageFormat.LEAF : NodePageFormat.INNER);
+                buffer.putInt(NodePageFormat.NODE_NUM_KEYS, numKeys);
+                for (int i = 0; i < numKeys; i++){
+                    buffer.putLong(NodePageFormat.keyOffset(i), toLong(node.getKey(i), "key"));
+                }
+                if (leaf){
+                    LeafNode<Key, Value, M> leafNode = (LeafNode<Key, Value, M>) node;
+                    LeafNode<Key, Value, M> next = leafNode.getRightSibling();
+                    buffer.putLong(NodePageFormat.NODE_NEXT_LEAF, next == null ? -1 : addresses.get(next));
+                    for (int i = 0; i < numKeys; i++){
+                        buffer.putLong(NodePageFormat.valueOffset(numKeys, i), toLong(leafNode.getValue(i), "value"));
+                    }
+                } else {
+                    InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+                    buffer.putLong(NodePageFormat.NODE_NEXT_LEAF, -1);
+                    for (int i = 0; i <= numKeys; i++){
+                        Node<Key, Value, M> child = inner.getChild(i);
+                        buffer.putLong(NodePageFormat.childOffset(numKeys, i), addresses.get(child));
+                        long[] label = labels.get(child);
+                        int offset = NodePageFormat.childLabelOffset(numKeys, i);
+                        buffer.putLong(offset, label[0]);
+                        buffer.putLong(offset + 8, label[1]);
+                        buffer.putLong(offset + 16, label[2]);
+                    }
+                }
+                writeFully(channel, buffer, addresses.get(node));
+            }
+            ByteBuffer header = ByteBuffer.allocate(NodePageFormat.PAGE_SIZE);
+            header.putInt(NodePageFormat.HEADER_MAGIC, NodePageFormat.MAGIC);
+            header.putInt(NodePageFormat.HEADER_VERSION, NodePageFormat.FROZEN_VERSION);
+            header.putInt(NodePageFormat.HEADER_PAGE_SIZE, pageSize);
+            header.putInt(NodePageFormat.HEADER_KEY_TYPE, keyType[0]);
+            header.putLong(NodePageFormat.HEADER_ROOT, addresses.get(tree.root));
+            header.putLong(NodePageFormat.HEADER_PAGES, (end[0] + pageSize - 1) / pageSize);
+            long[] rootLabel = labels.get(tree.root);
+            header.putLong(NodePageFormat.HEADER_LABEL, rootLabel[0]);
+            header.putLong(NodePageFormat.HEADER_LABEL + 8, rootLabel[1]);
+            header.putLong(NodePageFormat.HEADER_LABEL + 16, rootLabel[2]);
+            writeFully(channel, header, 0);
+            channel.force(true);
+        }
+    }
+
+    private static <Key extends Comparable<Key>, Value, M> int maxNodeBytes(Node<Key, Value, M> node){
+        if (node.getNodeType() == NodeType.LeafNode){
+            return NodePageFormat.nodeBytes(true, node.numKeys);
+        }
+        InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+        int max = NodePageFormat.nodeBytes(false, node.numKeys);
+        for (int i = 0; i < inner.getSizeChildren(); i++){
+            max = Math.max(max, maxNodeBytes(inner.getChild(i)));
+        }
+        return max;
+    }
+
+    /**
+     * gives node and its subtree their addresses (in pre-order) and calculates the labels (count, hash, greatest key).
+     * A node is appended at end, if it fits into the rest of that page, else it starts the next page.
+     */
+    private static <Key extends Comparable<Key>, Value, M> void layout(Node<Key, Value, M> node, IdentityHashMap<Node<Key, Value, M>, Long> addresses,
+            IdentityHashMap<Node<Key, Value, M>, long[]> labels, ArrayList<Node<Key, Value, M>> order, int pageSize, long[] end, int[] keyType){
+        boolean leaf = node.getNodeType() == NodeType.LeafNode;
+        int bytes = NodePageFormat.nodeBytes(leaf, node.numKeys);
+        long address = end[0];
+        if (address % pageSize + bytes > pageSize){
+            address = (address / pageSize + 1) * pageSize;
+        }
+        end[0] = address + bytes;
+        addresses.put(node, address);
+        order.add(node);
+
+        long[] label = new long[3];
+        if (leaf){
+            if (node.numKeys > 0 && node.getKey(0) instanceof Integer){
+                keyType[0] = NodePageFormat.KEY_INTEGER;
+            }
+            for (int i = 0; i < node.numKeys; i++){
+                long key = toLong(node.getKey(i), "key");
+                label[1] ^= NodePageFormat.hash(key, keyType[0]);
+                label[2] = key;
+            }
+            label[0] = node.numKeys;
+        } else {
+            InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+            for (int i = 0; i < inner.getSizeChildren(); i++){
+                layout(inner.getChild(i), addresses, labels, order, pageSize, end, keyType);
+                long[] childLabel = labels.get(inner.getChild(i));
+                label[0] += childLabel[0];
+                label[1] ^= childLabel[1];
+                label[2] = childLabel[2];//the children are ordered -> the last one has the greatest key
+            }
+        }
+        labels.put(node, label);
+    }
+
+    private static long toLong(Object number, String what){
+        if (number instanceof Integer || number instanceof Long){
+            return ((Number) number).longValue();
+        }
+        throw new IllegalArgumentException("freeze supports Integer and Long keys and values, but a " + what + " is " + number);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()){
+            position += channel.write(buffer, position);
+        }
+    }
+}
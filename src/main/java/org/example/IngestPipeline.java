@@ -0,0 +1,256 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single writer ingest stage in front of a {@link PersistentTree}: producers enqueue mutations into a bounded queue,
+ * one writer thread takes them in batches, sorts every batch by key (the last mutation of a key wins), applies it
+ * with PersistentTree.applyBatch (every node is copied and its label calculated once per batch) and publishes a
+ * {@link TreeSnapshot} of the result. Fingerprint readers use the published snapshot and never wait for the writer.
+ * A producer counts its mutation in enqueued before it puts it into the queue and the writer counts the mutations it
+ * applied (in queue order): once applied reaches the enqueued count read by flush, every mutation whose enqueue
+ * returned before flush is applied. Producers share no lock, only the queue.
+ */
+public class IngestPipeline <Key extends Comparable<Key>, Value, M>{
+    private final PersistentTree<Key, Value, M> tree;
+    private final ArrayBlockingQueue<Mutation<Key, Value>> queue;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;//how long the writer waits for a batch to fill up after its first mutation
+    private final Thread writer;
+    private final AtomicLong enqueued = new AtomicLong();//mutations that are in the queue or being put into it
+    private final AtomicInteger inFlight = new AtomicInteger();//producers inside enqueue, close waits for them
+    private volatile boolean running = true;//false: close was called, no new mutations
+    private volatile boolean stopped;//true: no producer can enqueue anymore, the writer ends when the queue is empty
+    private volatile TreeSnapshot<Key, Value, M> published;
+    private volatile Throwable failure;
+
+    //metrics
+    private final AtomicLong applied = new AtomicLong();//mutations taken from the queue and applied (before collapsing)
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong applyNanos = new AtomicLong();//sum over all batches
+    private volatile long maxApplyNanos;
+    private volatile int lastBatchSize;
+
+    /**
+     * @param capacity        maximum number of queued mutations, producers block while the queue is full (and fail,
+     *                        if the writer thread fails meanwhile)
+     * @param maxBatchSize    maximum number of mutations per batch
+     * @param maxLatencyMicros maximum time the writer waits for more mutations before it applies a batch
+     */
+    public IngestPipeline(PersistentTree<Key, Value, M> tree, int capacity, int maxBatchSize, long maxLatencyMicros){
+        if (maxBatchSize < 1){
+            throw new IllegalArgumentException("maxBatchSize has to be at least 1, was " + maxBatchSize);
+        }
+        this.tree = tree;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MICROSECONDS.toNanos(maxLatencyMicros);
+        this.published = tree.snapshot();
+        this.writer = new Thread(this::writeLoop, "ingest-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * enqueues an insert (or replacement of the value) of key, blocks while the queue is full
+     */
+    public void insert(Key key, Value value) throws InterruptedException {
+        enqueue(new Mutation<>(key, value, false));
+    }
+
+    /**
+     * enqueues a delete of key, blocks while the queue is full
+     */
+    public void delete(Key key) throws InterruptedException {
+        enqueue(new Mutation<Key, Value>(key, null, true));
+    }
+
+    private void enqueue(Mutation<Key, Value> mutation) throws InterruptedException {
+        this.inFlight.incrementAndGet();//before running is read -> close either sees this producer or it sees running == false
+        try {
+            checkRunning();
+            this.enqueued.incrementAndGet();
+            boolean queued = false;
+            try {
+                //no blocking put: a failed writer never empties the queue, so the failure is re-checked every 10ms
+                while (!(queued = this.queue.offer(mutation, 10, TimeUnit.MILLISECONDS))){
+                    checkFailure();
+                }
+            } finally {
+                if (!queued){
+                    this.enqueued.decrementAndGet();
+                }
+            }
+        } finally {
+            this.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the snapshot published after the last applied batch
+     */
+    public TreeSnapshot<Key, Value, M> snapshot(){
+        return this.published;
+    }
+
+    /**
+     * waits until every mutation enqueued before this call is applied and published
+     */
+    public void flush() throws InterruptedException {
+        long target = this.enqueued.get();
+        synchronized (this){
+            while (this.applied.get() < target){
+                checkFailure();
+                this.wait(100);
+            }
+        }
+    }
+
+    /**
+     * applies the mutations that are still queued and stops the writer thread. Producers that did not get their
+     * mutation into the queue before close get an IllegalStateException, none is dropped silently.
+     */
+    public void close() throws InterruptedException {
+        this.running = false;
+        while (this.inFlight.get() > 0){//the writer keeps draining, so a producer that passed checkRunning gets through
+            Thread.sleep(1);
+        }
+        this.stopped = true;
+        this.writer.join();
+        checkFailure();
+    }
+
+    private void checkRunning(){
+        checkFailure();
+        if (!this.running){
+            throw new IllegalStateException("the pipeline is closed");
+        }
+    }
+
+    private void checkFailure(){
+        if (this.failure != null){
+            throw new IllegalStateException("the writer thread failed", this.failure);
+        }
+    }
+
+    private void writeLoop(){
+        ArrayList<Mutation<Key, Value>> batch = new ArrayList<>(this.maxBatchSize);
+        try {
+            while (!this.stopped || !this.queue.isEmpty()){
+                Mutation<Key, Value> first = this.queue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null){
+                    continue;
+                }
+                //collect until the batch is full or the first mutation waited maxLatency
+                batch.add(first);
+                long deadline = System.nanoTime() + this.maxLatencyNanos;
+                while (batch.size() < this.maxBatchSize){
+                    if (this.queue.drainTo(batch, this.maxBatchSize - batch.size()) > 0){
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Mutation<Key, Value> next = remaining > 0 ? this.queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null){
+                        break;
+                    }
+                    batch.add(next);
+                }
+                apply(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e){
+            this.failure = e;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e){
+            this.failure = e;
+        } finally {
+            synchronized (this){
+                this.notifyAll();
+            }
+        }
+    }
+
+    private void apply(ArrayList<Mutation<Key, Value>> batch){
+        long start = System.nanoTime();
+        //sort by key, the sort is stable -> the last mutation of every key is the last one of its run
+        Collections.sort(batch, new Comparator<Mutation<Key, Value>>() {
+            public int compare(Mutation<Key, Value> a, Mutation<Key, Value> b) {
+                return a.key.compareTo(b.key);
+            }
+        });
+        ArrayList<Pair<Key, Value>> upserts = new ArrayList<>();
+        ArrayList<Key> deletes = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++){
+            Mutation<Key, Value> mutation = batch.get(i);
+            if (i + 1 < batch.size() && batch.get(i + 1).key.compareTo(mutation.key) == 0){
+                continue;//a later mutation of the same key wins
+            }
+            if (mutation.delete){
+                deletes.add(mutation.key);
+            } else {
+                upserts.add(new Pair<>(mutation.key, mutation.value));
+            }
+        }
+        this.tree.applyBatch(upserts, deletes);
+        this.published = this.tree.snapshot();
+
+        long nanos = System.nanoTime() - start;
+        this.batches.incrementAndGet();
+        this.applyNanos.addAndGet(nanos);
+        this.maxApplyNanos = Math.max(this.maxApplyNanos, nanos);
+        this.lastBatchSize = batch.size();
+        this.applied.addAndGet(batch.size());
+        synchronized (this){
+            this.notifyAll();
+        }
+    }
+
+    public int getQueueDepth(){
+        return this.queue.size();
+    }
+
+    public long getBatches(){
+        return this.batches.get();
+    }
+
+    /**
+     * @return number of mutations that were applied (including the ones that a later mutation of the same key replaced)
+     */
+    public long getAppliedMutations(){
+        return this.applied.get();
+    }
+
+    public int getLastBatchSize(){
+        return this.lastBatchSize;
+    }
+
+    public long getAverageApplyNanos(){
+        long batches = this.batches.get();
+        return batches == 0 ? 0 : this.applyNanos.get() / batches;
+    }
+
+    public long getMaxApplyNanos(){
+        return this.maxApplyNanos;
+    }
+
+    /**
+     * an enqueued insert or delete
+     */
+    private static class Mutation <Key, Value>{
+        final Key key;
+        final Value value;
+        final boolean delete;
+
+        Mutation(Key key, Value value, boolean delete){
+            this.key = key;
+            this.value = value;
+            this.delete = delete;
+        }
+    }
+}
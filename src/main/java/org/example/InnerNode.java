@@ -1,28 +1,38 @@
 package org.example;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key, Value, M>{
-    private ArrayList<Node<Key, Value, M>> children;
+    private Node<Key, Value, M>[] children;
+    private int numChildren;
 
-    public InnerNode(Monoid<M, Key> monoid) {
-        super(monoid);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public InnerNode(Monoid<M, Key> monoid, int degree) {
+        super(monoid, degree);
         this.label = this.monoid.identity();
-        this.children = new ArrayList<Node<Key, Value, M>>();
+        this.children = (Node<Key, Value, M>[]) new Node[degree + 2];
+        this.numChildren = 0;
     }
 
     public void addChildIndex(int index, Node<Key, Value, M> child){
-        this.children.add(index, child);
+        System.arraycopy(this.children, index, this.children, index + 1, this.numChildren - index);
+        this.children[index] = child;
+        this.numChildren++;
+    }
+    public void addChild(Node<Key, Value, M> child){
+        this.children[this.numChildren++] = child;
     }
     public Node<Key, Value, M> getChild(int index){
-        return this.children.get(index);
+        return this.children[index];
     }
     public void removeChildIndex(int index) {
-        this.children.remove(index);
+        System.arraycopy(this.children, index + 1, this.children, index, this.numChildren - index - 1);
+        this.children[--this.numChildren] = null;
     }
 
     public int getSizeChildren(){
-        return this.children.size();
+        return this.numChildren;
     }
 
     @Override
@@ -36,12 +46,12 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
             return null;
         }
         if (this.indexInParent > 0){//otherwise "this" is at index 0
-            return (InnerNode<Key, Value, M>) this.parent.children.get(this.indexInParent-1);
+            return (InnerNode<Key, Value, M>) this.parent.children[this.indexInParent-1];
         }
         int down = 1;
-        Node<Key, Value, M> tmp = this.children.get(0);
+        Node<Key, Value, M> tmp = this.children[0];
         while (tmp.getNodeType() != NodeType.LeafNode){
-            tmp = ((InnerNode<Key, Value, M>)tmp).children.get(0);
+            tmp = ((InnerNode<Key, Value, M>)tmp).children[0];
             down++;
         }
         if (tmp.getLeftSibling() == null){
@@ -60,13 +70,13 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
         if (this.parent == null){
             return null;
         }
-        if (this.indexInParent < this.parent.keys.size()){
-            return (InnerNode<Key, Value, M>) this.parent.children.get(this.indexInParent+1);
+        if (this.indexInParent < this.parent.numKeys){
+            return (InnerNode<Key, Value, M>) this.parent.children[this.indexInParent+1];
         }
         int down = 1;
-        Node<Key, Value, M> tmp = this.children.get(this.children.size()-1);
+        Node<Key, Value, M> tmp = this.children[this.numChildren-1];
         while (tmp.getNodeType() != NodeType.LeafNode){
-            tmp = ((InnerNode<Key, Value, M>)tmp).children.get(((InnerNode<Key, Value, M>)tmp).children.size()-1);
+            tmp = ((InnerNode<Key, Value, M>)tmp).children[((InnerNode<Key, Value, M>)tmp).numChildren-1];
             down++;
         }
         if (tmp.getRightSibling() == null){
@@ -85,46 +95,73 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
      */
     @Override
     public void calculateLabel() {
+        if (this.prefixLabels != null){
+            //fill the prefix aggregates on the way, the label is the last prefix
+            this.prefixLabels[0] = this.monoid.identity();
+            for (int i = 0; i < this.numChildren; i++) {
+                this.prefixLabels[i+1] = this.monoid.combine(this.prefixLabels[i], this.children[i].label);
+            }
+            this.suffixLabels[this.numChildren] = this.prefixLabels[0];
+            for (int i = this.numChildren-1; i >= 0; i--) {
+                this.suffixLabels[i] = this.monoid.combine(this.children[i].label, this.suffixLabels[i+1]);
+            }
+            this.numPrefixLabels = this.numChildren;
+            this.label = this.prefixLabels[this.numChildren];
+            return;
+        }
         this.label = this.monoid.identity();
-        for (Node<Key, Value, M> child : this.children) {
-            this.label = this.monoid.combine(this.label, child.label);
+        for (int i = 0; i < this.numChildren; i++) {
+            this.label = this.monoid.combine(this.label, this.children[i].label);
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void enablePrefixLabels() {
+        this.prefixLabels = (M[]) new Object[this.degree + 3];
+        this.suffixLabels = (M[]) new Object[this.degree + 3];
+    }
+
     /**
-     * Returns the index of the child pointer that holds the range, that the key is part of
+     * Returns the index of the child pointer that holds the range, that the key is part of (binary search)
      */
     @Override
     public int searchInNode(Key key) {
-        int i = 0;
-        for (i = 0; i < this.keys.size(); i++){ //iterate over all keys
-            int compare = key.compareTo(this.keys.get(i));//-1 if key < keys[i], 0 if =, 1 if >
-            if (compare == 0){
-                return i + 1; //we need the second child of found key (structure: child1-Key-child2)
-            } else if (compare < 0) {
-                return i;//first child of found key
+        int low = 0;
+        int high = this.numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid].compareTo(key) <= 0){//key >= keys[mid] -> we need a child right of keys[mid] (structure: child1-Key-child2)
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        return i;//return last child of node
+        return low;//number of keys <= key = index of the child
     }
 
     @Override
     public Node<Key, Value, M> split(int midIndex){
-        InnerNode<Key, Value, M> newNode = new InnerNode<Key, Value, M>(this.monoid);
+        InnerNode<Key, Value, M> newNode = new InnerNode<Key, Value, M>(this.monoid, this.degree);
+        if (this.prefixLabels != null){
+            newNode.enablePrefixLabels();
+        }
 
-        int size = this.keys.size();
+        int size = this.numKeys;
         //relocate Keys
-        for (int i = size-1; i > midIndex; i--){
-            newNode.keys.add(0, this.keys.get(i));
-            this.keys.remove(i);
-        }
+        System.arraycopy(this.keys, midIndex + 1, newNode.keys, 0, size - midIndex - 1);
+        newNode.numKeys = size - midIndex - 1;
         //relocate children
-        for (int i = size; i > midIndex; i--) {
-            newNode.children.add(0, this.getChild(i));
-            newNode.children.get(0).parent = newNode;
-            this.children.remove(i);
+        System.arraycopy(this.children, midIndex + 1, newNode.children, 0, size - midIndex);
+        newNode.numChildren = size - midIndex;
+        for (int i = 0; i < newNode.numChildren; i++) {
+            newNode.children[i].parent = newNode;
         }
-        this.keys.remove(midIndex);
+        newNode.dirty = this.dirty;//newNode may have gotten dirty children
+        Arrays.fill(this.keys, midIndex, size, null);
+        Arrays.fill(this.children, midIndex + 1, this.numChildren, null);
+        this.numKeys = midIndex;
+        this.numChildren = midIndex + 1;
         //recalculate labels
         this.calculateLabel();
         newNode.calculateLabel();
@@ -138,18 +175,18 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
         if (this.getSizeKeys() > index && this.getKey(index) == upKey){//it is impossible that the upKey already exists in InnerNode
             throw new UnsupportedOperationException("insertNode-InnerNode Error: This is impossible");
         }
-        this.keys.add(index, upKey);
-        if (this.children.size() == 0){
-            this.children.add(index, node);//in case the parent node is new => empty
+        this.addKeyIndex(index, upKey);
+        if (this.numChildren == 0){
+            this.addChildIndex(index, node);//in case the parent node is new => empty
         }
-        this.children.add(index+1, newNode);
-        for (int i = index; i < this.children.size(); i++){//change the all children indices starting from node
-            this.children.get(i).indexInParent = i;
+        this.addChildIndex(index+1, newNode);
+        for (int i = index; i < this.numChildren; i++){//change the all children indices starting from node
+            this.children[i].indexInParent = i;
         }
         //newNode.indexInParent = index+1;
         if (newNode.getNodeType() == NodeType.InnerNode){
-            for (int i = 0; i <= newNode.keys.size(); i++){
-                ((InnerNode<Key, Value, M>) newNode).children.get(i).indexInParent = i;
+            for (int i = 0; i <= newNode.numKeys; i++){
+                ((InnerNode<Key, Value, M>) newNode).children[i].indexInParent = i;
             }
         }
     }
@@ -157,15 +194,16 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
     @Override
     public void transferLeftSibling(Node<Key, Value, M> lender) {
         InnerNode<Key, Value, M> lenderTMP = (InnerNode<Key, Value, M>) lender;
-        this.keys.add(0, this.parent.keys.get(this.indexInParent-1));//since we transfer the left sibling, "this.indexInParent" is always > 0
-        this.children.add(0, lenderTMP.children.get(lenderTMP.children.size()-1));//add in front the last sibling child
-        this.children.get(0).parent = this;//update parent of new child
-        lenderTMP.children.remove(lenderTMP.children.size()-1);
-        this.parent.keys.set(this.indexInParent-1, lender.keys.get(lender.keys.size()-1));
-        lender.keys.remove(lender.keys.size()-1);
+        this.addKeyIndex(0, this.parent.keys[this.indexInParent-1]);//since we transfer the left sibling, "this.indexInParent" is always > 0
+        this.addChildIndex(0, lenderTMP.children[lenderTMP.numChildren-1]);//add in front the last sibling child
+        this.children[0].parent = this;//update parent of new child
+        this.dirty |= this.children[0].dirty;
+        lenderTMP.removeChildIndex(lenderTMP.numChildren-1);
+        this.parent.keys[this.indexInParent-1] = lender.keys[lender.numKeys-1];
+        lender.removeKeyIndex(lender.numKeys-1);
         //update the index of all childrenNodes of "this" node (because we added children in front)
-        for (int i = 0; i < this.children.size(); i++){
-            this.children.get(i).indexInParent = i;
+        for (int i = 0; i < this.numChildren; i++){
+            this.children[i].indexInParent = i;
         }
         this.calculateLabel();
         lender.calculateLabel();
@@ -173,21 +211,22 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
 
     @Override
     public void transferRightSibling(Node<Key, Value, M> lender) {
-        int sizeBorrower = this.keys.size();
+        int sizeBorrower = this.numKeys;
         InnerNode<Key, Value, M> lenderTMP = (InnerNode<Key, Value, M>) lender;
-        this.keys.add(this.parent.keys.get(this.indexInParent));//sink the key of the parent down and append to node
-        this.children.add(lenderTMP.children.get(0));//append first child of sibling
-        this.children.get(this.children.size()-1).parent = this;//update parent of new child
-        lenderTMP.children.remove(0);//remove that child in right sibling
+        this.addKey(this.parent.keys[this.indexInParent]);//sink the key of the parent down and append to node
+        this.addChild(lenderTMP.children[0]);//append first child of sibling
+        this.children[this.numChildren-1].parent = this;//update parent of new child
+        this.dirty |= this.children[this.numChildren-1].dirty;
+        lenderTMP.removeChildIndex(0);//remove that child in right sibling
         /*if (sizeBorrower == 0 && this.indexInParent != 0){
-            this.parent.keys.set(this.indexInParent-1, this.keys.get(0));//update the key in parent of necessary (if "this" was empty) - this is done in the line below right??
+            this.parent.keys[this.indexInParent-1] = this.keys[0];//update the key in parent of necessary (if "this" was empty) - this is done in the line below right??
         }*/
-        lender.parent.keys.set(lender.indexInParent-1, lender.keys.get(0));//change the key symbolizing right sibling in parent to "new" first key
-        lender.keys.remove(0);//remove the key that is now in parent
+        lender.parent.keys[lender.indexInParent-1] = lender.keys[0];//change the key symbolizing right sibling in parent to "new" first key
+        lender.removeKeyIndex(0);//remove the key that is now in parent
 
-        this.children.get(this.children.size()-1).indexInParent = this.children.size()-1;//update the index of the new childNode
-        for (int i = 0; i < lenderTMP.children.size(); i++){//update the index of all children of lender
-            lenderTMP.children.get(i).indexInParent = lenderTMP.children.get(i).indexInParent - 1;
+        this.children[this.numChildren-1].indexInParent = this.numChildren-1;//update the index of the new childNode
+        for (int i = 0; i < lenderTMP.numChildren; i++){//update the index of all children of lender
+            lenderTMP.children[i].indexInParent = lenderTMP.children[i].indexInParent - 1;
         }
         this.calculateLabel();
         lender.calculateLabel();
@@ -198,21 +237,24 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
         InnerNode<Key, Value, M> rightSTMP = (InnerNode<Key, Value, M>) rightSibling;
         //get the correct index of the Key that symbolises the right node in parent
         int rIndexKeyInParent = rightSibling.indexInParent == 0? rightSibling.indexInParent : rightSibling.indexInParent-1;
-        int index = this.keys.size();
-        this.keys.add(this.parent.keys.get(rIndexKeyInParent));
-        this.keys.addAll(rightSibling.keys);
-        this.children.addAll(rightSTMP.children);
+        int index = this.numChildren;
+        this.addKey(this.parent.keys[rIndexKeyInParent]);
+        System.arraycopy(rightSibling.keys, 0, this.keys, this.numKeys, rightSibling.numKeys);
+        this.numKeys += rightSibling.numKeys;
+        System.arraycopy(rightSTMP.children, 0, this.children, this.numChildren, rightSTMP.numChildren);
+        this.numChildren += rightSTMP.numChildren;
+        this.dirty |= rightSibling.dirty;
         //update parent pointers and indices of those children
-        for (int i = index; i < this.children.size(); i++){
-            this.children.get(i).parent = this;
-            this.children.get(i).indexInParent = i;
+        for (int i = index; i < this.numChildren; i++){
+            this.children[i].parent = this;
+            this.children[i].indexInParent = i;
         }
-        this.parent.keys.remove(rIndexKeyInParent);
-        this.parent.children.remove(rightSibling.indexInParent);
+        this.parent.removeKeyIndex(rIndexKeyInParent);
+        this.parent.removeChildIndex(rightSibling.indexInParent);
 
         //update the index of all following sibling nodes
-        for (int i = rIndexKeyInParent; i < this.parent.children.size(); i++){
-            this.parent.children.get(i).indexInParent = i;
+        for (int i = rIndexKeyInParent; i < this.parent.numChildren; i++){
+            this.parent.children[i].indexInParent = i;
         }
 
         this.calculateLabel();
@@ -222,24 +264,58 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
 
     @Override
     public Pair<M, Integer> aggregate(int indexNode, Key y, int size, boolean upFunction){
+        if (this.prefixLabels != null){
+            int end = this.endOfRange(indexNode, y, size, upFunction);
+            M range = this.prefixRange(indexNode, end);
+            if (range != null){
+                return new Pair<>(range, end);
+            }
+        }
         M acc = this.monoid.identity();
-        while (indexNode < size && (upFunction || this.keys.get(indexNode).compareTo(y) < 0)){//1 if x > y, 0 if =, -1 if <
-            acc = this.monoid.combine(acc, this.children.get(indexNode).label);
+        while (indexNode < size && (upFunction || this.keys[indexNode].compareTo(y) < 0)){//1 if x > y, 0 if =, -1 if <
+            acc = this.monoid.combine(acc, this.children[indexNode].label);
             indexNode++;
         }
         return new Pair<>(acc, indexNode);
     }
 
+    @Override
+    public int aggregateInto(MutableMonoid<M, Key> mutable, M acc, int indexNode, Key y, int size, boolean upFunction){
+        if (this.prefixLabels != null){
+            int end = this.endOfRange(indexNode, y, size, upFunction);
+            M range = this.prefixRange(indexNode, end);
+            if (range != null){
+                mutable.combineInto(acc, range);
+                return end;
+            }
+        }
+        while (indexNode < size && (upFunction || this.keys[indexNode].compareTo(y) < 0)){
+            mutable.combineInto(acc, this.children[indexNode].label);
+            indexNode++;
+        }
+        return indexNode;
+    }
+
+
+    /**
+     * The index at which the loop of aggregate stops (binary search instead of comparing every key)
+     */
+    private int endOfRange(int indexNode, Key y, int size, boolean upFunction){
+        if (upFunction){
+            return Math.max(indexNode, size);
+        }
+        return Math.max(indexNode, Math.min(size, this.searchNextBest(y)));
+    }
 
     /* FOR TESTING AND VISUALISATION */
     @Override
     public void inorder(Key nullElement, ArrayList<Key> sortedKeys){
         //if (this.children != null){
-            for (int i = 0; i < this.children.size(); i++){
-                this.children.get(i).inorder(nullElement, sortedKeys);
-                if (i < this.keys.size()){
+            for (int i = 0; i < this.numChildren; i++){
+                this.children[i].inorder(nullElement, sortedKeys);
+                if (i < this.numKeys){
                     sortedKeys.add(nullElement);
-                    sortedKeys.add(this.keys.get(i));
+                    sortedKeys.add(this.keys[i]);
                 }
             }
         //}
@@ -247,26 +323,26 @@ public class InnerNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
 
     @Override
     public void printTree() {
-            System.out.print(this.keys);
+            System.out.print(this.getKeyList());
             Node<Key, Value, M> tmp = this.getRightSibling();
             while (tmp != null){
                 System.out.print("   -   ");
-                System.out.print(tmp.keys);
+                System.out.print(tmp.getKeyList());
                 tmp = tmp.getRightSibling();
             }
             System.out.println(" ");
-            this.children.get(0).printTree();
+            this.children[0].printTree();
     }
     @Override
     public void arrayTree(Key nullElement, ArrayList<ArrayList<Key>> list) {
-        ArrayList<Key> list2 = new ArrayList<>(this.keys);
+        ArrayList<Key> list2 = this.getKeyList();
         Node<Key, Value, M> tmp = this.getRightSibling();
         while (tmp != null){
             list2.add(nullElement);
-            list2.addAll(tmp.keys);
+            list2.addAll(tmp.getKeyList());
             tmp = tmp.getRightSibling();
         }
         list.add(list2);
-        this.children.get(0).arrayTree(nullElement, list);
+        this.children[0].arrayTree(nullElement, list);
     }
 }
@@ -0,0 +1,19 @@
+package org.example;
+
+/**
+ * A commutative {@link Monoid} in which a combine can be undone (e.g. addition, xor).
+ * For such monoids the tree updates labels incrementally: insert combines the image of the new key into the labels
+ * of the leaf and all its parents, delete removes it again with uncombine, instead of recalculating these nodes
+ * from all their children. (IMPORTANT: combine has to be commutative, the new key is combined in at the end)
+ * @param <M> the element type this Monoid is formed over
+ */
+public interface InvertibleMonoid<M, U> extends Monoid<M, U>{
+    /**
+     * The inverse of combine: removes x from acc, where x was combined into acc before
+     * @param acc: a Monoid that contains x
+     * @param x: the Monoid that shall be removed
+     * @return: the Monoid e with combine(e, x) = acc, or null if e cannot be derived from acc and x alone
+     *          (e.g. a maximum that came from x), then the tree recalculates that label from the children
+     */
+    M uncombine(M acc, M x);
+}
@@ -1,33 +1,42 @@
 package org.example;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class LeafNode <Key extends Comparable<Key>, Value, M> extends Node<Key, Value, M>{
-    private ArrayList<Value> values;
+    private Value[] values;//values[i] belongs to keys[i]
     private LeafNode<Key, Value, M> leftSibling;
     private LeafNode<Key, Value, M> rightSibling;
 
-    public LeafNode(Monoid<M, Key> monoid) {
-        super(monoid);
+    @SuppressWarnings("unchecked")
+    public LeafNode(Monoid<M, Key> monoid, int degree) {
+        super(monoid, degree);
         this.label = this.monoid.identity();
-        this.values = new ArrayList<Value>();
+        this.values = (Value[]) new Object[degree + 1];
         this.leftSibling = null;
         this.rightSibling = null;
     }
-    public LeafNode(Monoid<M, Key> monoid, Key key, Value value) {
-        super(monoid);
+    public LeafNode(Monoid<M, Key> monoid, int degree, Key key, Value value) {
+        this(monoid, degree);
         this.label = this.monoid.mapIntoMonoid(key);
-        this.values = new ArrayList<Value>();
-        this.keys.add(key);
-        this.values.add(value);
-        this.leftSibling = null;
-        this.rightSibling = null;
+        this.addKeyValueIndex(0, key, value);
     }
 
-    public Value getValue(int index){ return this.values.get(index); }
-    public void setValue(int index, Value value){ this.values.set(index, value); }
-    public void removeValueIndex(int index) {
-        this.values.remove(index);
+    public Value getValue(int index){ return this.values[index]; }
+    public void setValue(int index, Value value){ this.values[index] = value; }
+    /**
+     * Copies length entries starting at index from into keys and values (values may be null, then only keys are copied)
+     */
+    void copyEntries(int from, Key[] keys, Value[] values, int offset, int length){
+        System.arraycopy(this.keys, from, keys, offset, length);
+        if (values != null){
+            System.arraycopy(this.values, from, values, offset, length);
+        }
+    }
+    public void removeKeyValueIndex(int index) {
+        System.arraycopy(this.values, index + 1, this.values, index, this.numKeys - index - 1);
+        this.values[this.numKeys - 1] = null;
+        this.removeKeyIndex(index);
     }
 
     @Override
@@ -40,9 +49,19 @@ public class LeafNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
     }
     @Override
     public LeafNode<Key, Value, M> getRightSibling() { return rightSibling; }
+    /**
+     * Links this node and rightSibling as neighbours in the list of LeafNodes
+     */
+    public void setRightSibling(LeafNode<Key, Value, M> rightSibling) {
+        this.rightSibling = rightSibling;
+        if (rightSibling != null){
+            rightSibling.leftSibling = this;
+        }
+    }
     public void addKeyValueIndex(int index, Key key, Value value){
-        this.keys.add(index, key);
-        this.values.add(index, value);
+        System.arraycopy(this.values, index, this.values, index + 1, this.numKeys - index);
+        this.values[index] = value;
+        this.addKeyIndex(index, key);
     }
 
     /**
@@ -51,38 +70,57 @@ public class LeafNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
      */
     @Override
     public void calculateLabel() {
+        if (this.prefixLabels != null){
+            //fill the prefix aggregates on the way, the label is the last prefix
+            this.prefixLabels[0] = this.monoid.identity();
+            for (int i = 0; i < this.numKeys; i++) {
+                this.prefixLabels[i+1] = this.monoid.combine(this.prefixLabels[i], this.monoid.mapIntoMonoid(this.keys[i]));
+            }
+            this.suffixLabels[this.numKeys] = this.prefixLabels[0];
+            for (int i = this.numKeys-1; i >= 0; i--) {
+                this.suffixLabels[i] = this.monoid.combine(this.monoid.mapIntoMonoid(this.keys[i]), this.suffixLabels[i+1]);
+            }
+            this.numPrefixLabels = this.numKeys;
+            this.label = this.prefixLabels[this.numKeys];
+            return;
+        }
         this.label = this.monoid.identity();
-        for (Key key : this.keys) {
-            this.label = this.monoid.combine(this.label, this.monoid.mapIntoMonoid(key));
+        for (int i = 0; i < this.numKeys; i++) {
+            this.label = this.monoid.combine(this.label, this.monoid.mapIntoMonoid(this.keys[i]));
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void enablePrefixLabels() {
+        this.prefixLabels = (M[]) new Object[this.degree + 2];
+        this.suffixLabels = (M[]) new Object[this.degree + 2];
+    }
+
     /**
-     * Returns the index of the entry that has exactly the same key as (parameter) key
-     * @return index
+     * Returns the index of the entry that has exactly the same key as (parameter) key (binary search)
+     * @return index or -1, if the node does not contain key
      */
     @Override
     public int searchInNode(Key key) {
-        for (int i = 0; i < this.keys.size(); i++){ //iterate over all keys
-            int compare = key.compareTo(this.keys.get(i));
-            if (compare == 0){
-                return i;
-            }
-        }
-        return -1;
+        return this.indexOfKey(key);
     }
 
     /* Following for insert Operation */
     @Override
     public Node<Key, Value, M> split(int midIndex){
-        LeafNode<Key, Value, M> newNode = new LeafNode<Key, Value, M>(this.monoid);
-
-        int size = this.getSizeKeys();
-        for (int i = size-1; i >= midIndex; i--){
-            newNode.addKeyValueIndex(0, this.keys.get(i), this.values.get(i));
-            this.keys.remove(i);
-            this.values.remove(i);
+        LeafNode<Key, Value, M> newNode = new LeafNode<Key, Value, M>(this.monoid, this.degree);
+        if (this.prefixLabels != null){
+            newNode.enablePrefixLabels();
         }
+
+        int size = this.numKeys;
+        System.arraycopy(this.keys, midIndex, newNode.keys, 0, size - midIndex);
+        System.arraycopy(this.values, midIndex, newNode.values, 0, size - midIndex);
+        newNode.numKeys = size - midIndex;
+        Arrays.fill(this.keys, midIndex, size, null);
+        Arrays.fill(this.values, midIndex, size, null);
+        this.numKeys = midIndex;
         newNode.rightSibling = this.rightSibling;
         newNode.leftSibling = this;
         if (this.rightSibling != null){
@@ -104,42 +142,39 @@ public class LeafNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
     @Override
     public void transferLeftSibling(Node<Key, Value, M> lender) {
         LeafNode<Key, Value, M> lenderTMP = (LeafNode<Key, Value, M>) lender;
-        this.keys.add(0, lender.keys.get(lender.keys.size()-1));
-        this.values.add(0, lenderTMP.values.get(lenderTMP.values.size()-1));
+        this.addKeyValueIndex(0, lender.keys[lender.numKeys-1], lenderTMP.values[lender.numKeys-1]);
         this.calculateLabel();
 
-        lender.keys.remove(lender.keys.size()-1);
-        lenderTMP.values.remove(lenderTMP.values.size()-1);
+        lenderTMP.removeKeyValueIndex(lender.numKeys-1);
         lenderTMP.calculateLabel();
 
-        this.parent.keys.set(this.indexInParent-1, this.keys.get(0));
+        this.parent.keys[this.indexInParent-1] = this.keys[0];
     }
 
     @Override
     public void transferRightSibling(Node<Key, Value, M> lender) {
-        int sizeBorrower = this.keys.size();
+        int sizeBorrower = this.numKeys;
         LeafNode<Key, Value, M> lenderTMP = (LeafNode<Key, Value, M>) lender;
-        this.keys.add(lender.keys.get(0));
-        this.values.add(lenderTMP.values.get(0));
+        this.addKeyValueIndex(this.numKeys, lender.keys[0], lenderTMP.values[0]);
         this.calculateLabel();
 
-        lender.keys.remove(0);
-        lenderTMP.values.remove(0);
+        lenderTMP.removeKeyValueIndex(0);
         lenderTMP.calculateLabel();
 
         if (sizeBorrower == 0 && this.indexInParent != 0){
             //if borrower was empty (then the borrowed key is now the first key in the node)
             // and not the first node in parent, then change key in parent
-            this.parent.keys.set(this.indexInParent-1, this.keys.get(0));
+            this.parent.keys[this.indexInParent-1] = this.keys[0];
         }//lender.parent == this.parent (see: Node line 158)
-        this.parent.keys.set(lender.indexInParent-1, lender.keys.get(0));//change the key symbolizing right sibling in parent to "new" first key
+        this.parent.keys[lender.indexInParent-1] = lender.keys[0];//change the key symbolizing right sibling in parent to "new" first key
     }
 
     @Override
     public void fuseSiblings(Node<Key, Value, M> rightSibling) {
         LeafNode<Key, Value, M> rightSiblingTMP = (LeafNode<Key, Value, M>) rightSibling;
-        this.keys.addAll(rightSibling.keys);
-        this.values.addAll(rightSiblingTMP.values);
+        System.arraycopy(rightSibling.keys, 0, this.keys, this.numKeys, rightSibling.numKeys);
+        System.arraycopy(rightSiblingTMP.values, 0, this.values, this.numKeys, rightSibling.numKeys);
+        this.numKeys += rightSibling.numKeys;
         this.rightSibling = rightSiblingTMP.rightSibling;//remove right sibling from sibling list
         if (rightSiblingTMP.rightSibling != null){
             rightSiblingTMP.rightSibling.leftSibling = this;
@@ -147,7 +182,7 @@ public class LeafNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
 
         //get the correct index of the Key that symbolises the right node in parent
         int rIndexKeyInParent = rightSibling.indexInParent == 0? rightSibling.indexInParent : rightSibling.indexInParent-1;
-        this.parent.keys.remove(rIndexKeyInParent);
+        this.parent.removeKeyIndex(rIndexKeyInParent);
         this.parent.removeChildIndex(rightSibling.indexInParent);
 
         //update index in parent of all siblings with same parent
@@ -167,42 +202,66 @@ public class LeafNode <Key extends Comparable<Key>, Value, M> extends Node<Key,
             acc = this.monoid.combine(acc, this.label);
             return new Pair<>(acc, indexNode);
         } */
+        if (this.prefixLabels != null){
+            int end = y == null ? this.numKeys : Math.max(indexNode, this.searchNextBest(y));//first index >= indexNode with a key >= y
+            M range = this.prefixRange(indexNode, end);
+            if (range != null){
+                return new Pair<>(range, end);
+            }
+        }
         M acc = this.monoid.identity();
-        while (indexNode < this.keys.size() && this.keys.get(indexNode).compareTo(y) < 0) {
-            acc = this.monoid.combine(acc, this.monoid.mapIntoMonoid(this.keys.get(indexNode)));
+        while (indexNode < this.numKeys && (y == null || this.keys[indexNode].compareTo(y) < 0)) {
+            acc = this.monoid.combine(acc, this.monoid.mapIntoMonoid(this.keys[indexNode]));
             indexNode++;
         }
         return new Pair<>(acc, indexNode);
     }
 
+    @Override
+    public int aggregateInto(MutableMonoid<M, Key> mutable, M acc, int indexNode, Key y, int size, boolean upDown){
+        if (this.prefixLabels != null){
+            int end = y == null ? this.numKeys : Math.max(indexNode, this.searchNextBest(y));
+            M range = this.prefixRange(indexNode, end);
+            if (range != null){
+                mutable.combineInto(acc, range);
+                return end;
+            }
+        }
+        while (indexNode < this.numKeys && (y == null || this.keys[indexNode].compareTo(y) < 0)) {
+            mutable.combineKeyInto(acc, this.keys[indexNode]);
+            indexNode++;
+        }
+        return indexNode;
+    }
+
     /*FOR TESTING*/
     public int getSizeValues(){
-        return this.values.size();
+        return this.numKeys;
     }
 
     /* FOR TESTING AND VISUALISATION */
     public void inorder(Key nullElement, ArrayList<Key> sortedKeys){
-        sortedKeys.addAll(this.keys);
+        sortedKeys.addAll(this.getKeyList());
     }
 
     @Override
     public void printTree() {
-        System.out.print(this.keys);
+        System.out.print(this.getKeyList());
         LeafNode<Key, Value, M> tmp = this.rightSibling;
         while (tmp != null){
             System.out.print("   -   ");
-            System.out.print(tmp.keys);
+            System.out.print(tmp.getKeyList());
             tmp = tmp.rightSibling;
         }
     }
 
     @Override
     public void arrayTree(Key nullElement, ArrayList<ArrayList<Key>> list) {
-        ArrayList<Key> list2 = new ArrayList<>(this.keys);
+        ArrayList<Key> list2 = this.getKeyList();
         LeafNode<Key, Value, M> tmp = this.rightSibling;
         while (tmp != null){
             list2.add(nullElement);
-            list2.addAll(tmp.keys);
+            list2.addAll(tmp.getKeyList());
             tmp = tmp.rightSibling;
         }
         list.add(list2);
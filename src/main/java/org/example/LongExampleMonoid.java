@@ -0,0 +1,55 @@
+package org.example;
+
+/**
+ * The long-key version of {@link ExampleMonoid}: counts the keys, xors their hashes and saves the greatest key.
+ * The hash of a key is Long.hashCode(key), so the fingerprints are the same as those of ExampleMonoid<Long>.
+ */
+public class LongExampleMonoid implements LongMonoid<LongExampleMonoid>{
+    int count;//addition - this does the same as the CountingMonoid
+    long hash;//xor - this stores the aggregated hash value
+    long greatestElement;//this saves the greatest Key contained in the subtree of a node or subrange, only valid if count > 0
+
+    public LongExampleMonoid(int count, long hash, long greatestElement){
+        this.count = count;
+        this.hash = hash;
+        this.greatestElement = greatestElement;
+    }
+
+    public LongExampleMonoid identity() {
+        return new LongExampleMonoid(0, 0, 0);
+    }
+
+    /**
+     * this function combines two monoids
+     * @param x: first Monoid
+     * @param y: second Monoid
+     * @return a monoid whose values are the combination of the given two monoids
+     */
+    public LongExampleMonoid combine(LongExampleMonoid x, LongExampleMonoid y) {
+        long tmp;
+        //an empty monoid (count = 0) has no greatest element, it is our minimum element
+        if (x.count == 0){
+            tmp = y.greatestElement;
+        } else if (y.count == 0) {
+            tmp = x.greatestElement;
+        } else {
+            tmp = Math.max(x.greatestElement, y.greatestElement);
+        }
+        return new LongExampleMonoid(x.count+y.count, x.hash^y.hash, tmp);
+    }
+
+    public LongExampleMonoid mapIntoMonoid(long x) {
+        return new LongExampleMonoid(1, Long.hashCode(x), x);
+    }
+
+    /**
+     * Compares the greatestElement of a Monoid with a Key
+     * @return 1 if x > y, 0 if x = y, -1 if x < y
+     */
+    public int compare(LongExampleMonoid x, long y){
+        if (x.count == 0){
+            return -1;//an empty monoid is our minimum element
+        }
+        return Long.compare(x.greatestElement, y);
+    }
+}
@@ -0,0 +1,262 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class LongInnerNode <Value, M> extends LongNode<Value, M>{
+    private LongNode<Value, M>[] children;
+    private int numChildren;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public LongInnerNode(LongMonoid<M> monoid, int degree) {
+        super(monoid, degree);
+        this.label = this.monoid.identity();
+        this.children = (LongNode<Value, M>[]) new LongNode[degree + 2];
+        this.numChildren = 0;
+    }
+
+    public void addChildIndex(int index, LongNode<Value, M> child){
+        System.arraycopy(this.children, index, this.children, index + 1, this.numChildren - index);
+        this.children[index] = child;
+        this.numChildren++;
+    }
+    public void addChild(LongNode<Value, M> child){
+        this.children[this.numChildren++] = child;
+    }
+    public LongNode<Value, M> getChild(int index){
+        return this.children[index];
+    }
+    public void removeChildIndex(int index) {
+        System.arraycopy(this.children, index + 1, this.children, index, this.numChildren - index - 1);
+        this.children[--this.numChildren] = null;
+    }
+
+    public int getSizeChildren(){
+        return this.numChildren;
+    }
+
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.InnerNode;
+    }
+
+    @Override
+    public LongInnerNode<Value, M> getLeftSibling() {
+        if (this.parent == null){
+            return null;
+        }
+        if (this.indexInParent > 0){//otherwise "this" is at index 0
+            return (LongInnerNode<Value, M>) this.parent.children[this.indexInParent-1];
+        }
+        int down = 1;
+        LongNode<Value, M> tmp = this.children[0];
+        while (tmp.getNodeType() != NodeType.LeafNode){
+            tmp = ((LongInnerNode<Value, M>)tmp).children[0];
+            down++;
+        }
+        if (tmp.getLeftSibling() == null){
+            return null;
+        }
+        tmp = tmp.getLeftSibling();//tmp here LongLeafNode
+        while (down > 0){
+            tmp = tmp.parent;
+            down--;
+        }
+        return (LongInnerNode<Value, M>) tmp;
+    }
+
+    @Override
+    public LongInnerNode<Value, M> getRightSibling() {
+        if (this.parent == null){
+            return null;
+        }
+        if (this.indexInParent < this.parent.numKeys){
+            return (LongInnerNode<Value, M>) this.parent.children[this.indexInParent+1];
+        }
+        int down = 1;
+        LongNode<Value, M> tmp = this.children[this.numChildren-1];
+        while (tmp.getNodeType() != NodeType.LeafNode){
+            tmp = ((LongInnerNode<Value, M>)tmp).children[((LongInnerNode<Value, M>)tmp).numChildren-1];
+            down++;
+        }
+        if (tmp.getRightSibling() == null){
+            return null;
+        }
+        tmp = tmp.getRightSibling();//tmp here LongLeafNode
+        while (down > 0){
+            tmp = tmp.parent;
+            down--;
+        }
+        return (LongInnerNode<Value, M>) tmp;
+    }
+
+    /**
+     * Calculates the label of the node => combines the labels of all children in order from left to right
+     */
+    @Override
+    public void calculateLabel() {
+        this.label = this.monoid.identity();
+        for (int i = 0; i < this.numChildren; i++) {
+            this.label = this.monoid.combine(this.label, this.children[i].label);
+        }
+    }
+
+    /**
+     * Returns the index of the child pointer that holds the range, that the key is part of (binary search)
+     */
+    @Override
+    public int searchInNode(long key) {
+        int low = 0;
+        int high = this.numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid] <= key){//we need a child right of keys[mid] (structure: child1-Key-child2)
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;//number of keys <= key = index of the child
+    }
+
+    @Override
+    public LongNode<Value, M> split(int midIndex){
+        LongInnerNode<Value, M> newNode = new LongInnerNode<Value, M>(this.monoid, this.degree);
+
+        int size = this.numKeys;
+        //relocate Keys
+        System.arraycopy(this.keys, midIndex + 1, newNode.keys, 0, size - midIndex - 1);
+        newNode.numKeys = size - midIndex - 1;
+        //relocate children
+        System.arraycopy(this.children, midIndex + 1, newNode.children, 0, size - midIndex);
+        newNode.numChildren = size - midIndex;
+        for (int i = 0; i < newNode.numChildren; i++) {
+            newNode.children[i].parent = newNode;
+        }
+        Arrays.fill(this.children, midIndex + 1, this.numChildren, null);
+        this.numKeys = midIndex;
+        this.numChildren = midIndex + 1;
+        //recalculate labels
+        this.calculateLabel();
+        newNode.calculateLabel();
+
+        return newNode;
+    }
+
+    @Override
+    public void insertNode(long upKey, LongNode<Value, M> node, LongNode<Value, M> newNode) {
+        int index = this.searchNextBest(upKey);
+        if (this.getSizeKeys() > index && this.getKey(index) == upKey){//it is impossible that the upKey already exists in LongInnerNode
+            throw new UnsupportedOperationException("insertNode-LongInnerNode Error: This is impossible");
+        }
+        this.addKeyIndex(index, upKey);
+        if (this.numChildren == 0){
+            this.addChildIndex(index, node);//in case the parent node is new => empty
+        }
+        this.addChildIndex(index+1, newNode);
+        for (int i = index; i < this.numChildren; i++){//change the all children indices starting from node
+            this.children[i].indexInParent = i;
+        }
+        if (newNode.getNodeType() == NodeType.InnerNode){
+            for (int i = 0; i <= newNode.numKeys; i++){
+                ((LongInnerNode<Value, M>) newNode).children[i].indexInParent = i;
+            }
+        }
+    }
+
+    @Override
+    public void transferLeftSibling(LongNode<Value, M> lender) {
+        LongInnerNode<Value, M> lenderTMP = (LongInnerNode<Value, M>) lender;
+        this.addKeyIndex(0, this.parent.keys[this.indexInParent-1]);//since we transfer the left sibling, "this.indexInParent" is always > 0
+        this.addChildIndex(0, lenderTMP.children[lenderTMP.numChildren-1]);//add in front the last sibling child
+        this.children[0].parent = this;//update parent of new child
+        lenderTMP.removeChildIndex(lenderTMP.numChildren-1);
+        this.parent.keys[this.indexInParent-1] = lender.keys[lender.numKeys-1];
+        lender.removeKeyIndex(lender.numKeys-1);
+        //update the index of all childrenNodes of "this" node (because we added children in front)
+        for (int i = 0; i < this.numChildren; i++){
+            this.children[i].indexInParent = i;
+        }
+        this.calculateLabel();
+        lender.calculateLabel();
+    }
+
+    @Override
+    public void transferRightSibling(LongNode<Value, M> lender) {
+        LongInnerNode<Value, M> lenderTMP = (LongInnerNode<Value, M>) lender;
+        this.addKey(this.parent.keys[this.indexInParent]);//sink the key of the parent down and append to node
+        this.addChild(lenderTMP.children[0]);//append first child of sibling
+        this.children[this.numChildren-1].parent = this;//update parent of new child
+        lenderTMP.removeChildIndex(0);//remove that child in right sibling
+        lender.parent.keys[lender.indexInParent-1] = lender.keys[0];//change the key symbolizing right sibling in parent to "new" first key
+        lender.removeKeyIndex(0);//remove the key that is now in parent
+
+        this.children[this.numChildren-1].indexInParent = this.numChildren-1;//update the index of the new childNode
+        for (int i = 0; i < lenderTMP.numChildren; i++){//update the index of all children of lender
+            lenderTMP.children[i].indexInParent = lenderTMP.children[i].indexInParent - 1;
+        }
+        this.calculateLabel();
+        lender.calculateLabel();
+    }
+
+    @Override
+    public void fuseSiblings(LongNode<Value, M> rightSibling) {
+        LongInnerNode<Value, M> rightSTMP = (LongInnerNode<Value, M>) rightSibling;
+        //get the correct index of the Key that symbolises the right node in parent
+        int rIndexKeyInParent = rightSibling.indexInParent == 0? rightSibling.indexInParent : rightSibling.indexInParent-1;
+        int index = this.numChildren;
+        this.addKey(this.parent.keys[rIndexKeyInParent]);
+        System.arraycopy(rightSibling.keys, 0, this.keys, this.numKeys, rightSibling.numKeys);
+        this.numKeys += rightSibling.numKeys;
+        System.arraycopy(rightSTMP.children, 0, this.children, this.numChildren, rightSTMP.numChildren);
+        this.numChildren += rightSTMP.numChildren;
+        //update parent pointers and indices of those children
+        for (int i = index; i < this.numChildren; i++){
+            this.children[i].parent = this;
+            this.children[i].indexInParent = i;
+        }
+        this.parent.removeKeyIndex(rIndexKeyInParent);
+        this.parent.removeChildIndex(rightSibling.indexInParent);
+
+        //update the index of all following sibling nodes
+        for (int i = rIndexKeyInParent; i < this.parent.numChildren; i++){
+            this.parent.children[i].indexInParent = i;
+        }
+
+        this.calculateLabel();
+    }
+
+    /* FOR COMPUTE FINGERPRINT */
+
+    @Override
+    public Pair<M, Integer> aggregate(int indexNode, long y, int size, boolean upFunction){
+        M acc = this.monoid.identity();
+        while (indexNode < size && (upFunction || this.keys[indexNode] < y)){
+            acc = this.monoid.combine(acc, this.children[indexNode].label);
+            indexNode++;
+        }
+        return new Pair<>(acc, indexNode);
+    }
+
+
+    /* FOR TESTING AND VISUALISATION */
+    @Override
+    public void inorder(ArrayList<Long> sortedKeys){
+        for (int i = 0; i < this.numChildren; i++){
+            this.children[i].inorder(sortedKeys);
+        }
+    }
+
+    @Override
+    public void printTree() {
+            System.out.print(this.getKeyList());
+            LongNode<Value, M> tmp = this.getRightSibling();
+            while (tmp != null){
+                System.out.print("   -   ");
+                System.out.print(tmp.getKeyList());
+                tmp = tmp.getRightSibling();
+            }
+            System.out.println(" ");
+            this.children[0].printTree();
+    }
+}
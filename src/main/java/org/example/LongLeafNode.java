@@ -0,0 +1,182 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class LongLeafNode <Value, M> extends LongNode<Value, M>{
+    private Value[] values;//values[i] belongs to keys[i]
+    private LongLeafNode<Value, M> leftSibling;
+    private LongLeafNode<Value, M> rightSibling;
+
+    @SuppressWarnings("unchecked")
+    public LongLeafNode(LongMonoid<M> monoid, int degree) {
+        super(monoid, degree);
+        this.label = this.monoid.identity();
+        this.values = (Value[]) new Object[degree + 1];
+        this.leftSibling = null;
+        this.rightSibling = null;
+    }
+    public LongLeafNode(LongMonoid<M> monoid, int degree, long key, Value value) {
+        this(monoid, degree);
+        this.label = this.monoid.mapIntoMonoid(key);
+        this.addKeyValueIndex(0, key, value);
+    }
+
+    public Value getValue(int index){ return this.values[index]; }
+    public void setValue(int index, Value value){ this.values[index] = value; }
+    public void removeKeyValueIndex(int index) {
+        System.arraycopy(this.values, index + 1, this.values, index, this.numKeys - index - 1);
+        this.values[this.numKeys - 1] = null;
+        this.removeKeyIndex(index);
+    }
+
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.LeafNode;
+    }
+    @Override
+    public LongLeafNode<Value, M> getLeftSibling(){
+        return leftSibling;
+    }
+    @Override
+    public LongLeafNode<Value, M> getRightSibling() { return rightSibling; }
+    public void addKeyValueIndex(int index, long key, Value value){
+        System.arraycopy(this.values, index, this.values, index + 1, this.numKeys - index);
+        this.values[index] = value;
+        this.addKeyIndex(index, key);
+    }
+
+    /**
+     * Calculates the label of the node => maps every key to sth. (according to given monoid)
+     * and then combines them (according to given monoid) in order from left to right
+     */
+    @Override
+    public void calculateLabel() {
+        this.label = this.monoid.identity();
+        for (int i = 0; i < this.numKeys; i++) {
+            this.label = this.monoid.combine(this.label, this.monoid.mapIntoMonoid(this.keys[i]));
+        }
+    }
+
+    /**
+     * Returns the index of the entry that has exactly the same key as (parameter) key (binary search)
+     * @return index or -1, if the node does not contain key
+     */
+    @Override
+    public int searchInNode(long key) {
+        return this.indexOfKey(key);
+    }
+
+    /* Following for insert Operation */
+    @Override
+    public LongNode<Value, M> split(int midIndex){
+        LongLeafNode<Value, M> newNode = new LongLeafNode<Value, M>(this.monoid, this.degree);
+
+        int size = this.numKeys;
+        System.arraycopy(this.keys, midIndex, newNode.keys, 0, size - midIndex);
+        System.arraycopy(this.values, midIndex, newNode.values, 0, size - midIndex);
+        newNode.numKeys = size - midIndex;
+        Arrays.fill(this.values, midIndex, size, null);
+        this.numKeys = midIndex;
+        newNode.rightSibling = this.rightSibling;
+        newNode.leftSibling = this;
+        if (this.rightSibling != null){
+            this.rightSibling.leftSibling = newNode;
+        }
+        this.rightSibling = newNode;
+        //recalculate the labels
+        this.calculateLabel();
+        newNode.calculateLabel();
+
+        return newNode;
+    }
+
+    @Override
+    public void insertNode(long upKey, LongNode<Value, M> node, LongNode<Value, M> newNode) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void transferLeftSibling(LongNode<Value, M> lender) {
+        LongLeafNode<Value, M> lenderTMP = (LongLeafNode<Value, M>) lender;
+        this.addKeyValueIndex(0, lender.keys[lender.numKeys-1], lenderTMP.values[lender.numKeys-1]);
+        this.calculateLabel();
+
+        lenderTMP.removeKeyValueIndex(lender.numKeys-1);
+        lenderTMP.calculateLabel();
+
+        this.parent.keys[this.indexInParent-1] = this.keys[0];
+    }
+
+    @Override
+    public void transferRightSibling(LongNode<Value, M> lender) {
+        int sizeBorrower = this.numKeys;
+        LongLeafNode<Value, M> lenderTMP = (LongLeafNode<Value, M>) lender;
+        this.addKeyValueIndex(this.numKeys, lender.keys[0], lenderTMP.values[0]);
+        this.calculateLabel();
+
+        lenderTMP.removeKeyValueIndex(0);
+        lenderTMP.calculateLabel();
+
+        if (sizeBorrower == 0 && this.indexInParent != 0){
+            //if borrower was empty (then the borrowed key is now the first key in the node)
+            // and not the first node in parent, then change key in parent
+            this.parent.keys[this.indexInParent-1] = this.keys[0];
+        }
+        this.parent.keys[lender.indexInParent-1] = lender.keys[0];//change the key symbolizing right sibling in parent to "new" first key
+    }
+
+    @Override
+    public void fuseSiblings(LongNode<Value, M> rightSibling) {
+        LongLeafNode<Value, M> rightSiblingTMP = (LongLeafNode<Value, M>) rightSibling;
+        System.arraycopy(rightSibling.keys, 0, this.keys, this.numKeys, rightSibling.numKeys);
+        System.arraycopy(rightSiblingTMP.values, 0, this.values, this.numKeys, rightSibling.numKeys);
+        this.numKeys += rightSibling.numKeys;
+        this.rightSibling = rightSiblingTMP.rightSibling;//remove right sibling from sibling list
+        if (rightSiblingTMP.rightSibling != null){
+            rightSiblingTMP.rightSibling.leftSibling = this;
+        }
+
+        //get the correct index of the Key that symbolises the right node in parent
+        int rIndexKeyInParent = rightSibling.indexInParent == 0? rightSibling.indexInParent : rightSibling.indexInParent-1;
+        this.parent.removeKeyIndex(rIndexKeyInParent);
+        this.parent.removeChildIndex(rightSibling.indexInParent);
+
+        //update index in parent of all siblings with same parent
+        for (int i = rIndexKeyInParent; i < this.parent.getSizeChildren(); i++){
+            this.parent.getChild(i).indexInParent = i;
+        }
+
+        this.calculateLabel();
+    }
+
+    /* FOR COMPUTE FINGERPRINT */
+
+    @Override
+    public Pair<M, Integer> aggregate(int indexNode, long y, int size, boolean upDown){
+        M acc = this.monoid.identity();
+        while (indexNode < this.numKeys && this.keys[indexNode] < y) {
+            acc = this.monoid.combine(acc, this.monoid.mapIntoMonoid(this.keys[indexNode]));
+            indexNode++;
+        }
+        return new Pair<>(acc, indexNode);
+    }
+
+    /* FOR TESTING AND VISUALISATION */
+    public void inorder(ArrayList<Long> sortedKeys){
+        for (int i = 0; i < this.numKeys; i++){
+            sortedKeys.add(this.keys[i]);
+        }
+    }
+
+    @Override
+    public void printTree() {
+        System.out.print(this.getKeyList());
+        LongLeafNode<Value, M> tmp = this.rightSibling;
+        while (tmp != null){
+            System.out.print("   -   ");
+            System.out.print(tmp.getKeyList());
+            tmp = tmp.rightSibling;
+        }
+    }
+}
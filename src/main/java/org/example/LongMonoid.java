@@ -0,0 +1,35 @@
+package org.example;
+
+/**
+ * The primitive counterpart of {@link Monoid} for trees with long keys (see {@link LongTree}).
+ * Keys are passed as long, so mapping and comparing a key does not box it.
+ * @param <M> the element type this Monoid is formed over
+ */
+public interface LongMonoid<M>{
+    /**
+     * The identity element of this monoid.
+     * @return the identity
+     */
+    M identity();
+
+    /**
+     * Combines two Monoid Elements (IMPORTANT: the function that combines the monoids has to be associative)
+     * @param x: first Monoid
+     * @param y: second Monoid
+     * @return: the new Monoid (that is a combination of x and y)
+     */
+    M combine(M x, M y);
+
+    /**
+     * This maps a long Key into a Monoid
+     * @param x: key that shall be mapped into a Monoid
+     * @return: a Monoid
+     */
+    M mapIntoMonoid(long x);
+
+    /**
+     * Compares the greatest Key of a Monoid with a Key
+     * @return 1 if x > y, 0 if x = y, -1 if x < y
+     */
+    int compare(M x, long y);
+}
@@ -0,0 +1,277 @@
+package org.example;
+
+import java.util.ArrayList;
+
+/**
+ * The long-key version of {@link Node}: keys are stored in a long[] and compared without boxing.
+ */
+abstract class LongNode <Value, M>{
+    protected long[] keys;//fixed capacity of degree+1, so that a node can hold one extra key until overflow() splits it
+    protected int numKeys;//number of used entries in keys
+    protected final int degree;//maximum number of keys, set per LongTree instance
+    protected M label;
+    protected LongMonoid<M> monoid;
+    protected LongInnerNode<Value, M> parent;
+    protected int indexInParent;//corresponds to the children index
+
+    protected LongNode(LongMonoid<M> monoid, int degree) {
+        this.degree = degree;
+        this.keys = new long[degree + 1];
+        this.numKeys = 0;
+        this.monoid = monoid;
+        this.parent = null;
+        indexInParent = 0;
+    }
+
+
+    public long getKey(int index) {
+        return this.keys[index];
+    }
+    public void setKey(int index, long key) {
+        this.keys[index] = key;//overwrites
+    }
+    public void addKeyIndex(int index, long key) {
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.numKeys - index);
+        this.keys[index] = key;//insert another element at index
+        this.numKeys++;
+    }
+    public void addKey(long key) {
+        this.keys[this.numKeys++] = key;//insert another element at the end
+    }
+    public void removeKeyIndex(int index) {
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.numKeys - index - 1);
+        this.numKeys--;//remove element at index
+    }
+
+    public int getSizeKeys(){
+        return this.numKeys;
+    }
+
+    /**
+     * Binary search for the exact key
+     * @return index of key in this node or -1, if the node does not contain key
+     */
+    public int indexOfKey(long key){
+        int i = this.searchNextBest(key);
+        if (i < this.numKeys && this.keys[i] == key){
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the keys of this node as a list (for printing and testing)
+     */
+    public ArrayList<Long> getKeyList(){
+        ArrayList<Long> list = new ArrayList<Long>(this.numKeys);
+        for (int i = 0; i < this.numKeys; i++){
+            list.add(this.keys[i]);
+        }
+        return list;
+    }
+
+    public LongInnerNode<Value, M> getParent() {
+        return parent;
+    }
+    public void setParent(LongInnerNode<Value, M> parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * returns Type of Node
+     */
+    public abstract NodeType getNodeType();
+    public abstract LongNode<Value, M> getLeftSibling();
+    public abstract LongNode<Value, M> getRightSibling();
+
+    /**
+     * has individual descriptions
+     */
+    public abstract void calculateLabel();
+
+    /**
+     * recalculates all parent labels of the specified node
+     */
+    public void recalculateParentLabels(){
+        LongInnerNode<Value, M> tmp = this.parent;
+        while (tmp != null){
+            tmp.calculateLabel();
+            tmp = tmp.parent;
+        }
+    }
+
+    /** Search for the specified key in the certain node
+     * and returns index of the value or the child associated with the key
+     * exception: LongLeafNode does not contain key -> return -1
+     */
+    public abstract int searchInNode(long key);
+
+    /* FOR INSERT */
+    /**
+     * Search the correct index for insertion (binary search)
+     * @return index of the first keys-entry that is bigger than key (if the key does not exist) or the exact key
+     */
+    public int searchNextBest(long key){
+        int low = 0;
+        int high = this.numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid] < key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Handles the case, in which the number of entries in a node (after insertion) is above
+     * the number of permitted entries (=Overflow). In this case, the Node will get split in
+     * two and then checks if the parent has an overflow.
+     * @return root node, if the last node that had an overflow was the original root, otherwise null
+     */
+    public LongNode<Value, M> overflow(){
+        int midIndex = (this.numKeys/2);//cuts the decimal part off -> round down
+        long upKey = this.keys[midIndex];
+
+        LongNode<Value, M> newNode = this.split(midIndex);
+
+        //setParents
+        if (this.parent == null) {//we split the root node
+            this.parent = new LongInnerNode<Value, M>(this.monoid, this.degree);//make new root
+        }
+        newNode.parent = this.parent;
+
+        //push the upKey into the parent node and set index of childNode
+        this.parent.insertNode(upKey, this, newNode);
+        if (this.parent.numKeys > this.degree){//we have Overflow
+             return this.parent.overflow();
+        } else {
+            return this.parent.parent == null ? this.parent : null;//x?y:z = if x then y else z
+        }
+    }
+
+    /**
+     * Splits a Node into 2 Nodes without setting parents
+     * @return the new Node, which was inserted as the right sibling e.g. Node split into Node and newNode => return newNode
+     */
+    public abstract LongNode<Value, M> split(int midIndex);
+
+    /**
+     * Adds the key and the child reference in the parent (at suitable index). Is called on the parent node of node and newNode.
+     * @param upKey the new Key that has to be inserted in the parent node
+     * @param node the node that was split
+     * @param newNode the newNode, which is the result of the split operation
+     */
+    public abstract void insertNode(long upKey, LongNode<Value, M> node, LongNode<Value, M> newNode);
+
+
+    /*FOR DELETE*/
+    /**
+     * checks, that the node has at least degree/2 number of entries
+     * exception is the root node
+     * @return false if node has degree/2 or more entries otherwise true
+     */
+    public boolean checkUnderflow(){
+        if (this.parent == null){
+            return false;//root node cannot have underflow
+        }
+        return (this.numKeys < (this.degree/2));
+    }
+
+    /**
+     * In case of an underflow, either borrow a node from a sibling (if possible) or fuse two sibling Nodes
+     * Attention "Case X": see {@link Node#underflow}
+     * @param innerNode: the LongInnerNode that contains the key, necessary for case X
+     * @param key: necessary for case X
+     * @return a node, if the root has to be changed, otherwise null
+     */
+    public LongNode<Value, M> underflow(LongInnerNode<Value, M> innerNode, long key){
+        //1: try to borrow a key from sibling
+        LongNode<Value, M> leftSibling = this.getLeftSibling();
+        //has a left sibling and left sibling has more keys than minimum amount
+        if (leftSibling != null && leftSibling.parent == this.parent && leftSibling.numKeys > this.degree/2) {
+            this.transferLeftSibling(leftSibling);
+            return null;
+        }
+
+        LongNode<Value, M> rightSibling = this.getRightSibling();
+        //has a right sibling and right sibling has more keys than minimum amount
+        if (rightSibling != null && rightSibling.parent == this.parent && rightSibling.numKeys > this.degree/2) {
+            this.transferRightSibling(rightSibling);
+            //Case X: if a higher Node than parent contained the deleted key, then change that key to the new key
+            if (this.numKeys == 1 && innerNode != this.parent && innerNode != null){
+                innerNode.setKey(innerNode.indexOfKey(key), this.keys[0]);
+            }
+            return null;
+        }
+
+        LongNode<Value, M> parentTMP = this.parent;
+        LongNode<Value, M> node;
+        //2: Can't borrow a key from any sibling => fuse with sibling
+        if (leftSibling != null && leftSibling.parent == this.parent) {
+            leftSibling.fuseSiblings(this);
+            node = leftSibling;
+        } else { //B+-tree node has at least 2 children -> one of them has the same parent
+            this.fuseSiblings(rightSibling);
+            node = this;
+        }
+        //Case X: if a higher Node than parent contained the reference key, then change that key to the new key
+        if (innerNode != node.parent && innerNode != null){
+            innerNode.setKey(innerNode.indexOfKey(key), node.keys[0]);
+        }
+
+        //Check on underflow and check if it's the root and if necessary change root node
+        if (parentTMP.numKeys < (this.degree/2)){//we have underflow
+            if (parentTMP.parent == null){//our parent is root node
+                if (parentTMP.numKeys == 0){//root now has 0 entries and one child => change root node to child
+                    node.parent = null;
+                    return node;
+                } else {
+                    return null;//root has entries
+                }
+            }
+            return this.parent.underflow(null, key);//our node.parent is not root
+        }
+        return null;//no underflow
+    }
+
+    /* FOR DELETE */
+    /**
+     * transfer the left child of our sibling node to our current node, adjust the label of all nodes
+     * and adjust the references contained in the parent
+     */
+    public abstract void transferLeftSibling(LongNode<Value, M> lender);
+    /**
+     * transfer the right child of our sibling node to our current node, adjust the label of all nodes
+     * and adjust the references contained in the parent
+     */
+    public abstract void transferRightSibling(LongNode<Value, M> lender);
+
+    /**
+     * fuses two sibling Nodes and removes the corresponding key + childPointer from parent node
+     */
+    public abstract void fuseSiblings(LongNode<Value, M> rightSibling);
+
+    /* FOR COMPUTE FINGERPRINT */
+
+    /**
+     * This function aggregates the relevant keys of the node (= "this") starting from indexNode up to size
+     * @param indexNode first index to look at
+     * @return a pair of (monoid, index) - the monoid stores the accumulated hash value; index = the last index we looked at
+     */
+    public abstract Pair<M, Integer> aggregate(int indexNode, long y, int size, boolean upDown);
+
+    /* FOR TESTING AND VISUALISATION */
+
+    /**
+     * Saves the ordered List of all keys in the tree (LeafNode keys only)
+     */
+    public abstract void inorder(ArrayList<Long> keys);
+
+    /**
+     * Prints the tree, with every floor of nodes having one line and a node is depicted by [the keys contained in this node]
+     */
+    public abstract void printTree();
+}
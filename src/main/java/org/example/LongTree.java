@@ -0,0 +1,191 @@
+package org.example;
+
+/**
+ * The long-key specialization of {@link Tree}: keys are primitive longs (long[] in every node), so neither the
+ * search loops nor the monoid have to box a key or call compareTo.
+ * Supports the same insert/delete/searchValue/computeFingerprint operations as Tree.
+ */
+public class LongTree <Value, M>{
+    protected final int degree;//maximum degree = every Node has at most degree Keys
+    protected LongNode<Value, M> root;
+    protected LongMonoid<M> monoid;
+    /**
+     * Constructor
+     */
+    public LongTree(LongMonoid<M> monoid){
+        this(monoid, Tree.DEFAULT_DEGREE);
+    }
+
+    /**
+     * Constructor
+     * @param degree the fan-out of this tree: every node holds at most degree keys
+     */
+    public LongTree(LongMonoid<M> monoid, int degree){
+        if (degree < 3){
+            throw new IllegalArgumentException("degree has to be at least 3, was " + degree);
+        }
+        this.degree = degree;
+        this.monoid = monoid;
+        this.root = new LongLeafNode<Value, M>(monoid, degree);
+    }
+
+    public int getDegree(){
+        return this.degree;
+    }
+
+    /**
+     * This method starts at the root of the B+ tree and traverses down the
+     * tree via key comparisons to the corresponding leaf node that should hold the 'key'.
+     * @return LongLeafNode that should contain the key we searched for
+     */
+    public LongLeafNode<Value, M> shouldContainKey(long key){
+        if (this.root == null){ return null; }
+        LongNode<Value, M> node = this.root;
+        while (node.getNodeType() == NodeType.InnerNode) {
+            //iterate over the children that contain range including key
+            node = ((LongInnerNode<Value, M>) node).getChild(node.searchInNode(key));
+        }
+
+        return (LongLeafNode<Value, M>)node;
+    }
+
+    /**
+     * Searches for the LongInnerNode containing the key
+     * @return: LongInnerNode containing key or null, if key does not exist in LongInnerNodes
+     */
+    public LongInnerNode<Value, M> searchInnerKeyNode(long key){
+        if (this.root == null){ return null; }
+        LongNode<Value, M> node = this.root;
+        while (node.getNodeType() != NodeType.LeafNode) {
+            //iterate over the children that contain range including key
+            if (node.indexOfKey(key) >= 0){
+                return (LongInnerNode<Value, M>)node;
+            }
+            node = ((LongInnerNode<Value, M>) node).getChild(node.searchInNode(key));
+        }
+        return null;
+    }
+
+    /**
+     * @return value associated with the specified key => key-value pair in LongLeafNode
+     */
+    public Value searchValue(long key){
+        LongLeafNode<Value, M> leaf = shouldContainKey(key);
+        int index = leaf.searchInNode(key);
+        if (index == -1){
+            return null;
+        }
+        return leaf.getValue(index);
+    }
+
+    /**
+     * inserts a key-value pair into the tree and checks that every node does not have more
+     * than their maximum allowed keys
+     */
+    public void insert(long key, Value value){
+        LongLeafNode<Value, M> leaf = shouldContainKey(key);//return leaf that should contain our key
+        if (leaf == null){
+            this.root = new LongLeafNode<Value, M>(this.monoid, this.degree, key, value);
+            return;
+        }
+        //search index of the first keys-entry that is bigger than key
+        int i = leaf.searchNextBest(key);
+        if (i < leaf.numKeys && leaf.keys[i] == key){//key already exists
+            leaf.setValue(i, value);//replace the old value with the new one
+            return;
+        }
+
+        leaf.addKeyValueIndex(i, key, value);
+
+        if (leaf.getSizeKeys() > this.degree){//we have Overflow
+            LongNode<Value, M> node = leaf.overflow();
+            if (node != null){ //was the last node with an overflow the original root?
+                this.root = node;
+            }
+        }
+        //update the parent labels
+        leaf.calculateLabel();
+        leaf.recalculateParentLabels();
+    }
+
+    /**
+     * Deletes a key-value pair and checks, that every node has at least the minimum number of nodes
+     */
+    public void delete(long key){
+        LongLeafNode<Value, M> leaf = shouldContainKey(key);
+        if (leaf == null){ return; }
+
+        int index = leaf.searchInNode(key);
+        if (index < 0){
+            return;//key does not exist
+        }
+        LongInnerNode<Value, M> tmp = null;
+        if (index == 0){
+            //if the deleted key is the first Key of a leaf node, then that Key can also be found in an inner node
+            tmp = searchInnerKeyNode(key);
+        }
+        leaf.removeKeyValueIndex(index);
+        if (leaf.checkUnderflow()){
+            LongNode<Value, M> node = leaf.underflow(tmp, key);
+            if (node != null) {
+                this.root = node;
+            }
+            leaf.recalculateParentLabels();
+            return;
+        } else {//if we do not have an underflow, but the deleted Key is in parent
+            if (tmp != null && tmp == leaf.parent){
+                tmp.setKey(tmp.indexOfKey(key), leaf.keys[0]);
+            }
+        }
+        //Case X: if a higher Node than parent contained the key, then change that key to the new key
+        if (tmp != leaf.parent && tmp != null){
+            tmp.setKey(tmp.indexOfKey(key), leaf.keys[0]);
+        }
+        leaf.calculateLabel();
+        leaf.recalculateParentLabels();
+    }
+
+    /**
+     * computes the fingerprint of the range in between x and y (including x, excluding y) according to the Monoid used,
+     * works exactly like {@link Tree#computeFingerprint}
+     * @param y     end point of range (y > x) (exclusive)
+     * @param node  the node that contains or whose subtree contains the beginning of our range = x
+     * @param indexNode the index at which Key x is written/saved in the given node
+     * @return a triplet consisting of: the monoid of the subrange the method was called on, the LongLeafNode and index that contain the first key >= y
+     */
+    public Pair<M, Pair<LongNode<Value, M>, Integer>> computeFingerprint (long y, LongNode<Value, M> node, int indexNode){
+        M acc = this.monoid.identity();
+        while (node != null){
+            if (this.monoid.compare(node.label, y) < 0) {
+                //aggregateUP: everything right of indexNode in this node is in range -> go up
+                Pair<M, Integer> pair = node.aggregate(indexNode, y, node.numKeys + 1, true); //+1 so that we also add the last child of InnerNodes
+                acc = this.monoid.combine(acc, pair.getFirst());
+
+                if (node.parent == null) {
+                    return new Pair<>(acc, Pair.createPair(null, 0));
+                } else {
+                    indexNode = node.indexInParent + 1;
+                    node = node.parent;
+                }
+            } else {
+                //aggregateDOWN: the end of the range is in this node -> go down
+                Pair<M, Integer> pair = node.aggregate(indexNode, y, node.numKeys, false);
+                indexNode = pair.getSecond();
+                acc = this.monoid.combine(acc, pair.getFirst());
+
+                if (node.getNodeType() == NodeType.LeafNode){
+                    break;
+                } else {
+                    node = ((LongInnerNode<Value, M>) node).getChild(indexNode);
+                    indexNode = 0;
+                }
+            }
+        }
+        return new Pair<>(acc, Pair.createPair(node, indexNode));
+    }
+
+    /* FOR TESTING */
+    public LongNode<Value, M> getRoot() {
+        return root;
+    }
+}
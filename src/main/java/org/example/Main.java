@@ -28,7 +28,6 @@ public class Main {
         tree.root.printTree();
         System.out.println();
 
-        LeafNode<Integer, Integer, ExampleMonoid<Integer>> startLeaf = tree.shouldContainKey(2);
-        System.out.println("This is the hash value of subrange x = 2 to y = 7: " + tree.computeFingerprint(7, startLeaf, 0).getFirst().count);
+        System.out.println("This is the hash value of subrange x = 2 to y = 7: " + tree.fingerprint(2, 7).count);
     }
 }
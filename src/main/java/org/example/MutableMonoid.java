@@ -0,0 +1,31 @@
+package org.example;
+
+/**
+ * A {@link Monoid} whose elements can also be used as mutable accumulators.
+ * {@link Tree#computeFingerprint(Comparable, Node, int, Fingerprint)} combines into one reusable accumulator
+ * with these methods instead of allocating a new element for every combine and every mapped key.
+ * @param <M> the element type this Monoid is formed over
+ * @param <U> the type of the mapped elements (e.g. the Key of a Node)
+ */
+public interface MutableMonoid<M, U> extends Monoid<M, U>{
+    /**
+     * @return a new element that equals the identity and may be changed by the other methods of this interface
+     */
+    M newAccumulator();
+
+    /**
+     * Sets acc back to the identity
+     */
+    void reset(M acc);
+
+    /**
+     * Combines x into acc: afterwards acc equals combine(acc, x); x is not changed
+     */
+    void combineInto(M acc, M x);
+
+    /**
+     * Combines the mapped key into acc: afterwards acc equals combine(acc, mapIntoMonoid(x)),
+     * without creating the mapped element
+     */
+    void combineKeyInto(M acc, U x);
+}
@@ -37,18 +37,38 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
-import java.util.Random;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * One parameterized suite for the read and the write path of {@link Tree}. Every benchmark runs for every combination
+ * of the @Param values of its state, select a subset on the command line, e.g.
+ *   java -jar target/benchmarks.jar "MyBenchmark.insert" -p size=100000 -p monoid=example -p distribution=uniform
+ * size: number of keys, degree: fan-out, monoid: example (ExampleMonoid), counting (CountingMonoid) or concat
+ * (ConCatKeyMonoid, its labels hold every key of the subtree -> expensive writes), distribution: the {@link Workload}
+ * the keys and queries come from, rangeWidth: number of keys in a fingerprint range (only the range fingerprints).
+ * The workloads are seeded and saved to files, so every fork and every run measures the same keys and queries.
+ * The write benchmarks change BATCH different LeafNodes per invocation that are chosen before it (not measured),
+ * so every operation really hits the case in its name.
+ * The whole matrix has about 1000 parameter combinations, with the default of one fork and 8 one second iterations
+ * that is about 3 hours. The usual subset for a comparison of two commits (about 20 minutes):
+ *   java -jar target/benchmarks.jar MyBenchmark -p size=100000 -p monoid=example -p distribution=uniform,zipf
+ * For numbers to publish, run the benchmarks of interest with -f 3 -r 10s -w 10s.
+ */
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
-//@State(Scope.Benchmark)
-@Fork(value = 60, warmups = 1, jvmArgs = {"-Xms2G", "-Xmx2G"}) //doesn't function with @Warmup and @Measurement it seems, but makes it so setup is run anew
-//                      for each fork and each fork runs n number of iterations + but only warmup forks function -> discards results
-//                      normal forks ("value")  (remove the "(Level.Iteration)" from @Setup
-@Warmup(iterations = 3)
-@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
 public class MyBenchmark {
+    private static final int QUERIES = 1024;//precomputed queries per read state, the benchmarks cycle through them
+    private static final int BATCH = 64;//operations per invocation of a write benchmark, amortizes the per-invocation timestamps
+    private static final long SEED = 42;//every fork and every run uses the same datasets
+
     public static void main(String[] args) throws RunnerException {
 
         Options opt = new OptionsBuilder()
@@ -58,141 +78,629 @@ public class MyBenchmark {
         new Runner(opt).run();
     }
 
+    /**
+     * @return the monoid with the given @Param name, typed as Object so one state works for all of them
+     */
+    @SuppressWarnings("unchecked")
+    private static Monoid<Object, Integer> monoid(String name){
+        switch (name){
+            case "example":
+                return (Monoid<Object, Integer>) (Monoid<?, Integer>) new ExampleMonoid<Integer>(0, 0, null);
+            case "counting":
+                return (Monoid<Object, Integer>) (Monoid<?, Integer>) new CountingMonoid<Integer>();
+            case "concat":
+                return (Monoid<Object, Integer>) (Monoid<?, Integer>) new ConCatKeyMonoid<Integer>(0, 0, null, null);
+            default:
+                throw new IllegalArgumentException("unknown monoid " + name);
+        }
+    }
+
+    /**
+     * @return the dataset of the given @Param values: loaded from the directory of the system property
+     * "workload.dir" (default target/workloads), the first fork that needs it generates and saves it
+     */
+    private static Workload workload(String distribution, int size){
+        try {
+            return Workload.load(distribution, size, QUERIES, SEED, Paths.get(System.getProperty("workload.dir", "target/workloads")));
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Integer[] boxed(int[] keys){
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++){
+            boxed[i] = keys[i];
+        }
+        return boxed;
+    }
+
+    /**
+     * Builds a tree from the sorted keys by bulk loading instead of inserting the keys one by one
+     */
+    private static Tree<Integer, Integer, Object> bulkLoad(Monoid<Object, Integer> monoid, int degree, Integer[] keys, double fillFactor){
+        ArrayList<Pair<Integer, Integer>> entries = new ArrayList<>(keys.length);
+        for (Integer key : keys){
+            entries.add(new Pair<>(key, key));
+        }
+        return new Tree<>(monoid, degree, entries.iterator(), fillFactor);
+    }
+
     @State(Scope.Thread)
-    public static class Params100 {//this is the same as with the @Setup and others
-        private Monoid<ExampleMonoid<Integer>, Integer> monoid = new ExampleMonoid<>(0,0, null);
-        private Tree<Integer, Integer, ExampleMonoid<Integer>> tree = new Tree<>(monoid);
-        private int firstKey;
-        private int secondKey;
-        private LeafNode<Integer, Integer, ExampleMonoid<Integer>> leafFirstKey;
-        private int indexFirstKey;
-
-        @Setup//(Level.Iteration) //"Level.Iteration" == The method is called once for each iteration of the benchmark. => makes it so that each iteration runs the setup anew
+    public static class ReadState {
+        @Param({"1000", "100000"})
+        protected int size;
+        @Param({"4", "64"})
+        protected int degree;
+        @Param({"example", "counting", "concat"})
+        protected String monoid;
+        @Param({"uniform", "zipf", "sequential", "clustered", "adversarial"})
+        protected String distribution;
+
+        protected Tree<Integer, Integer, Object> tree;
+        private int next;
+        private Integer[] lookups;//every second lookup misses (every lookup for adversarial)
+        private Integer[] splitKeys;//65 boundaries -> 64 adjacent subranges over the whole tree, like one reconciliation round
+
+        @Setup
         public void setup() {
-            Random ran = new Random();
-            tree.insert(ran.nextInt(10000), ran.nextInt(100));
-            while (tree.root.label.count < 100){
-                tree.insert(ran.nextInt(10000), ran.nextInt(100));
+            Workload workload = workload(distribution, size);
+            Integer[] keys = boxed(workload.getSortedKeys());
+            //0.7 is about the fill level that random inserts would have led to
+            tree = bulkLoad(monoid(monoid), degree, keys, 0.7);
+
+            lookups = new Integer[QUERIES];
+            for (int i = 0; i < QUERIES; i++){
+                lookups[i] = workload.getLookups()[i];
+            }
+            splitKeys = new Integer[65];
+            for (int i = 0; i < splitKeys.length; i++){
+                splitKeys[i] = keys[(int) ((long) (size - 1) * i / (splitKeys.length - 1))];
             }
+            setupRanges(workload, keys);
+        }
 
-            firstKey = ran.nextInt(10000);
-            secondKey = ran.nextInt((10000 - firstKey)) + firstKey;
+        /**
+         * called at the end of setup, for the states of the benchmarks that need more queries
+         */
+        protected void setupRanges(Workload workload, Integer[] keys) {
+        }
 
-            leafFirstKey = tree.shouldContainKey(firstKey);
-            indexFirstKey = leafFirstKey.searchNextBest(firstKey);
+        protected int next(){
+            return next++ & (QUERIES - 1);
+        }
+    }
+
+    /**
+     * ReadState with QUERIES ranges of rangeWidth keys, only for the range fingerprint benchmarks
+     * (the other read benchmarks would only be repeated for every rangeWidth)
+     */
+    @State(Scope.Thread)
+    public static class RangeState extends ReadState {
+        @Param({"10", "1000"})
+        private int rangeWidth;
+
+        private Integer[] rangeStarts;
+        private Integer[] rangeEnds;//exclusive, null = unbounded (rangeWidth >= size)
+        private LeafNode<Integer, Integer, Object>[] startLeaves;//the LeafNode of every range start
+        private int[] startIndexes;//the index of every range start in its LeafNode
+        private Fingerprint<Integer, Integer, Object> fingerprint;//reused by every computeFingerprintReuse call
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected void setupRanges(Workload workload, Integer[] keys) {
+            rangeStarts = new Integer[QUERIES];
+            rangeEnds = new Integer[QUERIES];
+            startLeaves = new LeafNode[QUERIES];
+            startIndexes = new int[QUERIES];
+            for (int i = 0; i < QUERIES; i++){
+                int start = workload.getRangeStarts()[i] % Math.max(1, size - rangeWidth);
+                rangeStarts[i] = keys[start];
+                rangeEnds[i] = start + rangeWidth < size ? keys[start + rangeWidth] : null;
+                startLeaves[i] = tree.shouldContainKey(rangeStarts[i]);
+                startIndexes[i] = startLeaves[i].searchNextBest(rangeStarts[i]);
+            }
+            fingerprint = tree.newFingerprint();
+        }
+    }
+
+    /**
+     * The state of the write benchmarks: a pool of identical trees with the fill level of the case is rebuilt for every
+     * iteration, before every invocation the next BATCH suitable LeafNodes (stride LeafNodes apart, not touched so
+     * far) are chosen and one key per LeafNode is put into batch, with its tree into batchTrees. The pool has enough
+     * trees for one batch (a small tree has less than BATCH suitable LeafNodes), when its LeafNodes run out, it is
+     * rebuilt (not measured).
+     */
+    @State(Scope.Thread)
+    public abstract static class WriteState {
+        @Param({"1000", "100000"})
+        protected int size;
+        @Param({"4", "64"})
+        protected int degree;
+        @Param({"example", "counting", "concat"})
+        protected String monoid;
+        @Param({"uniform", "zipf", "sequential", "clustered", "adversarial"})
+        protected String distribution;
+
+        private final double fillFactor;
+        private final int stride;
+        private final boolean insert;//true: batch gets new keys (smallest key of the leaf + 1), false: the second key of the leaf
+        private Integer[] keys;
+        private Monoid<Object, Integer> monoidInstance;
+        private final ArrayList<Tree<Integer, Integer, Object>> pool = new ArrayList<>();
+        private int current;//index in pool of the tree the search for the next LeafNode continues in
+        private int position;//index in keys where the search for the next LeafNode continues
+        protected final Integer[] batch = new Integer[BATCH];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected final Tree<Integer, Integer, Object>[] batchTrees = new Tree[BATCH];//the tree of every key of batch
+
+        protected WriteState(double fillFactor, int stride, boolean insert){
+            this.fillFactor = fillFactor;
+            this.stride = stride;
+            this.insert = insert;
+        }
+
+        /**
+         * @return true, if an operation on a LeafNode with numKeys keys hits the case of the benchmark
+         */
+        protected abstract boolean suitable(int numKeys);
+
+        @Setup(Level.Trial)
+        public void generate() {
+            keys = boxed(workload(distribution, size).getSortedKeys());
+            monoidInstance = monoid(monoid);
+        }
+
+        @Setup(Level.Iteration)
+        public void rebuild() {
+            pool.clear();
+            pool.add(bulkLoad(monoidInstance, degree, keys, fillFactor));
+            int perTree = 0;
+            for (int i = 0; i < keys.length; ){
+                LeafNode<Integer, Integer, Object> leaf = pool.get(0).shouldContainKey(keys[i]);
+                perTree += leaf.numKeys >= 2 && suitable(leaf.numKeys) ? 1 : 0;
+                i = skip(leaf);
+            }
+            if (perTree == 0){
+                throw new IllegalStateException("size " + size + " is too small for degree " + degree + ": no suitable LeafNode");
+            }
+            while (pool.size() * perTree < BATCH){
+                pool.add(bulkLoad(monoidInstance, degree, keys, fillFactor));
+            }
+            current = 0;
+            position = 0;
+        }
 
-            Pair<ExampleMonoid<Integer>, Pair<Node<Integer, Integer, ExampleMonoid<Integer>>, Integer>> pair = tree.computeFingerprint(secondKey, leafFirstKey, indexFirstKey);
-            while (pair.getFirst().count < 10 || pair.getFirst().count > 15){
-                firstKey = ran.nextInt(10000);
-                secondKey = ran.nextInt((10000 - firstKey)) + firstKey;
-                leafFirstKey = tree.shouldContainKey(firstKey);
-                indexFirstKey = leafFirstKey.searchNextBest(firstKey);
+        @Setup(Level.Invocation)
+        public void prepare() {
+            int count = 0;
+            while (count < BATCH){
+                if (position >= keys.length){
+                    position = 0;
+                    if (++current == pool.size()){//a fresh pool has at least BATCH suitable LeafNodes
+                        rebuild();
+                        count = 0;
+                    }
+                    continue;
+                }
+                Tree<Integer, Integer, Object> tree = pool.get(current);
+                LeafNode<Integer, Integer, Object> leaf = tree.shouldContainKey(keys[position]);
+                if (leaf.numKeys >= 2 && suitable(leaf.numKeys)){
+                    batch[count] = insert ? leaf.getKey(0) + 1 : leaf.getKey(1);
+                    batchTrees[count++] = tree;
+                }
+                position = skip(leaf);
+            }
+        }
 
-                pair = tree.computeFingerprint(secondKey, leafFirstKey, indexFirstKey);
+        /**
+         * @return the index in keys of the first key of the LeafNode stride LeafNodes right of leaf (keys.length if there is none)
+         */
+        private int skip(LeafNode<Integer, Integer, Object> leaf){
+            for (int i = 0; i < stride && leaf != null; i++){
+                leaf = leaf.getRightSibling();
             }
+            if (leaf == null){
+                return keys.length;
+            }
+            int index = Arrays.binarySearch(keys, leaf.getKey(0));
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class InsertNoSplitState extends WriteState {
+        public InsertNoSplitState(){
+            super(0.75, 1, true);
+        }
+
+        protected boolean suitable(int numKeys) {
+            return numKeys < degree;//the leaf has room for one more key
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class InsertSplitState extends WriteState {
+        public InsertSplitState(){
+            super(1.0, 1, true);
+        }
 
-            System.out.println("\n100-Param 1: " + firstKey + " Param 2: " + secondKey);
-            //leafThirdKey = tree.shouldContainKey(thirdKey);
-            //indexThirdKey = leafFirstKey.searchNextBest(thirdKey);
+        protected boolean suitable(int numKeys) {
+            return numKeys == degree;//the leaf is full
         }
     }
 
     @State(Scope.Thread)
-    public static class Params1000 {//this is the same as with the @Setup and others
-        private Monoid<ExampleMonoid<Integer>, Integer> monoid = new ExampleMonoid<>(0,0, null);
-        private Tree<Integer, Integer, ExampleMonoid<Integer>> tree = new Tree<>(monoid);
-        private int firstKey;
-        private int secondKey;
-        private LeafNode<Integer, Integer, ExampleMonoid<Integer>> leafFirstKey;
-        private int indexFirstKey;
-
-        @Setup//(Level.Iteration) //"Level.Iteration" == The method is called once for each iteration of the benchmark. => makes it so that each iteration runs the setup anew
+    public static class DeleteNoUnderflowState extends WriteState {
+        public DeleteNoUnderflowState(){
+            super(1.0, 1, false);
+        }
+
+        protected boolean suitable(int numKeys) {
+            return numKeys > degree/2;//the leaf stays at or above the minimum
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteUnderflowState extends WriteState {
+        public DeleteUnderflowState(){
+            //every leaf has the minimum number of keys -> the siblings usually cannot lend a key either, the leaves fuse
+            super(0.01, 3, false);
+        }
+
+        protected boolean suitable(int numKeys) {
+            return numKeys <= degree/2;//one key less is an underflow
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BuildState {
+        @Param({"1000", "100000"})
+        private int size;
+        @Param({"4", "64"})
+        private int degree;
+        @Param({"example", "counting", "concat"})
+        private String monoid;
+        @Param({"uniform", "zipf", "sequential", "clustered", "adversarial"})
+        private String distribution;
+
+        private Integer[] keys;//insertion order of the workload
+        private Monoid<Object, Integer> monoidInstance;
+
+        @Setup
         public void setup() {
-            Random ran = new Random();
-            tree.insert(ran.nextInt(10000), ran.nextInt(100));
-            while (tree.root.label.count < 1000){
-                tree.insert(ran.nextInt(10000), ran.nextInt(100));
-            }
+            keys = boxed(workload(distribution, size).getKeys());
+            monoidInstance = monoid(monoid);
+        }
+    }
 
-            firstKey = ran.nextInt(10000);
-            secondKey = ran.nextInt((10000 - firstKey)) + firstKey;
+    /**
+     * The state of the tail-latency benchmarks: every invocation gets a fresh tree of the given height whose nodes are
+     * all full or all at the minimum, so that one operation takes the longest path:
+     *   full:    degree * (degree+1)^(height-1) keys, an insert behind the largest key splits every node up to the root
+     *   minimal: 2 * (degree/2) * (degree/2+1)^(height-2) keys, the root has two children, a delete in the leftmost
+     *            LeafNode fuses every node up to the root and the root collapses
+     * The keys are 0, 2, 4, ... (like the sequential {@link Workload}), so key + 1 is always new.
+     * The trees come from a pool of identical trees (up to POOL_KEYS keys together) that is bulk loaded before every
+     * iteration, followed by a System.gc(), so neither the bulk loads nor their garbage collection fall into the
+     * measured operations. Only an iteration that uses more trees than the pool has refills it in between.
+     */
+    @State(Scope.Thread)
+    public abstract static class WorstCaseState {
+        private static final int POOL_KEYS = 1 << 23;
+        private static final int MAX_POOL = 1 << 14;//trees per pool for the small trees
+        @Param({"4", "16", "64"})
+        protected int degree;
+        @Param({"3"})
+        protected int height;
+        @Param({"example", "counting", "concat"})
+        protected String monoid;
 
-            leafFirstKey = tree.shouldContainKey(firstKey);
-            indexFirstKey = leafFirstKey.searchNextBest(firstKey);
+        private final boolean full;
+        private ArrayList<Pair<Integer, Integer>> entries;
+        private Monoid<Object, Integer> monoidInstance;
+        private final ArrayList<Tree<Integer, Integer, Object>> pool = new ArrayList<>();
+        private int next;//index of the next unused tree of pool
+        protected Tree<Integer, Integer, Object> tree;
+        protected Integer rootKey;//the first key of the root (the same in every tree of the pool)
+
+        protected WorstCaseState(boolean full){
+            this.full = full;
+        }
+
+        @Setup(Level.Trial)
+        public void generate() {
+            if (height < 2 || (!full && degree < 4)){
+                throw new IllegalArgumentException("height has to be at least 2 and degree at least 4 for minimal trees, were " + height + " and " + degree);
+            }
+            long size = full ? degree : 2L * (degree/2);
+            for (int level = full ? 1 : 2; level < height; level++){
+                size *= full ? degree + 1 : degree/2 + 1;
+            }
+            if (size > POOL_KEYS){
+                throw new IllegalArgumentException("a tree of height " + height + " and degree " + degree + " has " + size + " keys, that is too big for the pool");
+            }
+            entries = new ArrayList<>((int) size);
+            for (int i = 0; i < size; i++){
+                Integer key = 2 * i;
+                entries.add(new Pair<>(key, key));
+            }
+            monoidInstance = monoid(monoid);
+        }
 
-            Pair<ExampleMonoid<Integer>, Pair<Node<Integer, Integer, ExampleMonoid<Integer>>, Integer>> pair = tree.computeFingerprint(secondKey, leafFirstKey, indexFirstKey);
-            while (pair.getFirst().count < 100 || pair.getFirst().count > 150){
-                firstKey = ran.nextInt(10000);
-                secondKey = ran.nextInt((10000 - firstKey)) + firstKey;
-                leafFirstKey = tree.shouldContainKey(firstKey);
-                indexFirstKey = leafFirstKey.searchNextBest(firstKey);
+        @Setup(Level.Iteration)
+        public void fill() {
+            pool.clear();
+            int trees = Math.max(1, Math.min(MAX_POOL, POOL_KEYS / entries.size()));
+            for (int i = 0; i < trees; i++){
+                Tree<Integer, Integer, Object> tree = new Tree<>(monoidInstance, degree, entries.iterator(), full ? 1.0 : 0.01);
+                //check the shape: the operation would not hit its case otherwise
+                int levels = 1;
+                for (Node<Integer, Integer, Object> node = tree.root; node.getNodeType() == NodeType.InnerNode; node = ((InnerNode<Integer, Integer, Object>) node).getChild(0)){
+                    levels++;
+                }
+                if (levels != height || (full ? tree.root.numKeys != degree : tree.root.numKeys != 1)){
+                    throw new IllegalStateException("a tree of the pool has height " + levels + " and " + tree.root.numKeys + " keys in the root");
+                }
+                pool.add(tree);
+            }
+            rootKey = pool.get(0).root.getKey(0);
+            next = 0;
+            System.gc();
+        }
 
-                pair = tree.computeFingerprint(secondKey, leafFirstKey, indexFirstKey);
+        @Setup(Level.Invocation)
+        public void take() {
+            if (next == pool.size()){
+                fill();
             }
+            tree = pool.get(next);
+            pool.set(next++, null);//the used tree is garbage after the invocation
+        }
+
+        protected Integer largestKey(){
+            return entries.get(entries.size() - 1).getFirst();
+        }
+
+        protected Integer smallestKey(){
+            return entries.get(0).getFirst();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FullTreeState extends WorstCaseState {
+        public FullTreeState(){
+            super(true);
+        }
+    }
 
-            System.out.println("\n1000-Param 1: " + firstKey + " Param 2: " + secondKey);
-            //leafThirdKey = tree.shouldContainKey(thirdKey);
-            //indexThirdKey = leafFirstKey.searchNextBest(thirdKey);
+    @State(Scope.Thread)
+    public static class MinimalTreeState extends WorstCaseState {
+        public MinimalTreeState(){
+            super(false);
         }
     }
 
+    /**
+     * The state of the baseline comparison: the same keys in a {@link Tree} with an {@link ExampleMonoid}, a
+     * {@link TreeMapBaseline} and a {@link SortedArrayBaseline}. The setup checks that all three give the same
+     * fingerprint for every range, so the benchmarks compare equal results.
+     */
     @State(Scope.Thread)
-    public static class Params10000 {//this is the same as with the @Setup and others
-        private Monoid<ExampleMonoid<Integer>, Integer> monoid = new ExampleMonoid<>(0,0, null);
-        private Tree<Integer, Integer, ExampleMonoid<Integer>> tree = new Tree<>(monoid);
-        private int firstKey;
-        private int secondKey;
-        private LeafNode<Integer, Integer, ExampleMonoid<Integer>> leafFirstKey;
-        private int indexFirstKey;
-
-        @Setup//(Level.Iteration) //"Level.Iteration" == The method is called once for each iteration of the benchmark. => makes it so that each iteration runs the setup anew
+    public static class BaselineState {
+        @Param({"1000", "100000"})
+        private int size;
+        @Param({"4", "64"})
+        private int degree;
+        @Param({"uniform"})
+        private String distribution;
+        @Param({"1", "10", "100", "1000", "10000"})
+        private int rangeWidth;
+
+        private Tree<Integer, Integer, ExampleMonoid<Integer>> tree;
+        private TreeMapBaseline<Integer, Integer> treeMap;
+        private SortedArrayBaseline<Integer> sortedArray;
+        private int next;
+        private Integer[] rangeStarts;
+        private Integer[] rangeEnds;//exclusive, null = unbounded (rangeWidth >= size)
+
+        @Setup
         public void setup() {
-            Random ran = new Random();
-            tree.insert(ran.nextInt(100000), ran.nextInt(1000));
-            while (tree.root.label.count < 10000){
-                tree.insert(ran.nextInt(100000), ran.nextInt(1000));
+            Workload workload = workload(distribution, size);
+            Integer[] keys = boxed(workload.getSortedKeys());
+            ArrayList<Pair<Integer, Integer>> entries = new ArrayList<>(keys.length);
+            treeMap = new TreeMapBaseline<>();
+            for (Integer key : keys){
+                entries.add(new Pair<>(key, key));
+                treeMap.insert(key, key);
             }
+            tree = new Tree<>(new ExampleMonoid<Integer>(0, 0, null), degree, entries.iterator(), 0.7);
+            sortedArray = new SortedArrayBaseline<>(Arrays.asList(keys).iterator(), keys.length);
 
-            firstKey = ran.nextInt(100000);
-            secondKey = ran.nextInt((100000 - firstKey)) + firstKey;
+            rangeStarts = new Integer[QUERIES];
+            rangeEnds = new Integer[QUERIES];
+            for (int i = 0; i < QUERIES; i++){
+                int start = workload.getRangeStarts()[i] % Math.max(1, size - rangeWidth);
+                rangeStarts[i] = keys[start];
+                rangeEnds[i] = start + rangeWidth < size ? keys[start + rangeWidth] : null;
+                ExampleMonoid<Integer> expected = tree.fingerprint(rangeStarts[i], rangeEnds[i]);
+                if (!expected.equals(treeMap.fingerprint(rangeStarts[i], rangeEnds[i])) || !expected.equals(sortedArray.fingerprint(rangeStarts[i], rangeEnds[i]))){
+                    throw new IllegalStateException("the baselines disagree with the tree on the range [" + rangeStarts[i] + ", " + rangeEnds[i] + ")");
+                }
+            }
+        }
 
-            leafFirstKey = tree.shouldContainKey(firstKey);
-            indexFirstKey = leafFirstKey.searchNextBest(firstKey);
+        private int next(){
+            return next++ & (QUERIES - 1);
+        }
+    }
+
+    /*READ PATH*/
+    @Benchmark
+    public Integer searchValue(ReadState state){
+        return state.tree.searchValue(state.lookups[state.next()]);
+    }
 
-            Pair<ExampleMonoid<Integer>, Pair<Node<Integer, Integer, ExampleMonoid<Integer>>, Integer>> pair = tree.computeFingerprint(secondKey, leafFirstKey, indexFirstKey);
-            while (pair.getFirst().count < 1000 || pair.getFirst().count > 1500){
-                firstKey = ran.nextInt(100000);
-                secondKey = ran.nextInt((100000 - firstKey)) + firstKey;
-                leafFirstKey = tree.shouldContainKey(firstKey);
-                indexFirstKey = leafFirstKey.searchNextBest(firstKey);
+    @Benchmark
+    public LeafNode<Integer, Integer, Object> shouldContainKey(ReadState state){
+        return state.tree.shouldContainKey(state.lookups[state.next()]);
+    }
 
-                pair = tree.computeFingerprint(secondKey, leafFirstKey, indexFirstKey);
-            }
+    @Benchmark
+    public Pair<Object, Pair<Node<Integer, Integer, Object>, Integer>> computeFingerprint(RangeState state){
+        //the start leaf is known, like in the original computeFinger benchmarks
+        int i = state.next();
+        return state.tree.computeFingerprint(state.rangeEnds[i], state.startLeaves[i], state.startIndexes[i]);
+    }
+
+    @Benchmark
+    public Fingerprint<Integer, Integer, Object> computeFingerprintReuse(RangeState state){
+        //same as computeFingerprint, but combines into the reused fingerprint of state -> no allocations for a MutableMonoid (check with "-prof gc")
+        int i = state.next();
+        return state.tree.computeFingerprint(state.rangeEnds[i], state.startLeaves[i], state.startIndexes[i], state.fingerprint);
+    }
+
+    @Benchmark
+    public Object fingerprint(RangeState state){
+        //including the search for the start leaf
+        int i = state.next();
+        return state.tree.fingerprint(state.rangeStarts[i], state.rangeEnds[i]);
+    }
+
+    @Benchmark
+    public ArrayList<Object> fingerprints64Batch(ReadState state){
+        //64 adjacent subranges in one pass, every range continues where the previous one stopped
+        return state.tree.fingerprints(state.splitKeys);
+    }
+
+    @Benchmark
+    public Object[] fingerprints64Separate(ReadState state){
+        //the same 64 subranges, but every range searches its start leaf from the root
+        Object[] result = new Object[state.splitKeys.length - 1];
+        for (int i = 1; i < state.splitKeys.length; i++){
+            result[i - 1] = state.tree.fingerprint(state.splitKeys[i - 1], state.splitKeys[i]);
+        }
+        return result;
+    }
+
+    /*WRITE PATH*/
+    @Benchmark
+    public Tree<Integer, Integer, Object> buildByInsert(BuildState state){
+        //inserts all keys one by one in the order of the workload (sequential: ascending, adversarial: from both ends)
+        Tree<Integer, Integer, Object> tree = new Tree<>(state.monoidInstance, state.degree);
+        for (Integer key : state.keys){
+            tree.insert(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Tree<Integer, Integer, Object>[] insertNoSplit(InsertNoSplitState state){
+        for (int i = 0; i < BATCH; i++){
+            state.batchTrees[i].insert(state.batch[i], state.batch[i]);
+        }
+        return state.batchTrees;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Tree<Integer, Integer, Object>[] insertSplit(InsertSplitState state){
+        //every insert splits its LeafNode, some splits continue into the InnerNodes
+        for (int i = 0; i < BATCH; i++){
+            state.batchTrees[i].insert(state.batch[i], state.batch[i]);
+        }
+        return state.batchTrees;
+    }
 
-            System.out.println("\n10000-Param 1: " + firstKey + " Param 2: " + secondKey);
-            //leafThirdKey = tree.shouldContainKey(thirdKey);
-            //indexThirdKey = leafFirstKey.searchNextBest(thirdKey);
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Tree<Integer, Integer, Object>[] deleteNoUnderflow(DeleteNoUnderflowState state){
+        for (int i = 0; i < BATCH; i++){
+            state.batchTrees[i].delete(state.batch[i]);
         }
+        return state.batchTrees;
     }
 
     @Benchmark
-    public Pair<ExampleMonoid<Integer>, Pair<Node<Integer, Integer, ExampleMonoid<Integer>>, Integer>> computeFinger100(Params100 param){
-        //need to return see "JMHSample_10_DeadCode.java"
-        //return tree.get(param).computeFingerprint(secondArrayKey.get(param), leafFirstKey.get(param), indexFirstKey.get(param));
-        return param.tree.computeFingerprint(param.secondKey, param.leafFirstKey, param.indexFirstKey);
+    @OperationsPerInvocation(BATCH)
+    public Tree<Integer, Integer, Object>[] deleteUnderflow(DeleteUnderflowState state){
+        //every delete leaves its LeafNode with too few keys -> fuse with a sibling, which may continue upwards
+        for (int i = 0; i < BATCH; i++){
+            state.batchTrees[i].delete(state.batch[i]);
+        }
+        return state.batchTrees;
+    }
+
+    /*TAIL LATENCY*/
+    //SampleTime gives the distribution of single operations (p50, p99, p99.9, ...), e.g.
+    //  java -jar target/benchmarks.jar "MyBenchmark.(rootSplit|caseX|multiLevelFuse|.*Rebuild)" -prof gc -p monoid=example -r 10s
+    //every invocation takes a fresh tree from the pool of its state (not measured, but the allocations of the pool are
+    //counted): for the allocations of the operation, subtract gc.alloc.rate.norm of fullTreeRebuild / minimalTreeRebuild
+    //(same state, no operation) from the result. A pool of degree 64 trees has about 30 trees, iterations of 10s give
+    //enough samples for p99
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Tree<Integer, Integer, Object> rootSplit(FullTreeState state){
+        //the rightmost LeafNode and all of its ancestors are full -> height splits and a new root
+        state.tree.insert(state.largestKey() + 1, 0);
+        return state.tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Tree<Integer, Integer, Object> caseX(FullTreeState state){
+        //the smallest key of the first LeafNode under the second child of the root is the first key of the root:
+        //no underflow, but the key is rewritten in the root (height >= 3 -> the root is not the parent)
+        state.tree.delete(state.rootKey);
+        return state.tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Tree<Integer, Integer, Object> multiLevelFuse(MinimalTreeState state){
+        //the leftmost LeafNode, its siblings and all ancestors have the minimum -> fuses up to the root, the height shrinks
+        state.tree.delete(state.smallestKey());
+        return state.tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Tree<Integer, Integer, Object> fullTreeRebuild(FullTreeState state){
+        //baseline: only the pool of rootSplit and caseX
+        return state.tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Tree<Integer, Integer, Object> minimalTreeRebuild(MinimalTreeState state){
+        //baseline: only the pool of multiLevelFuse
+        return state.tree;
+    }
+
+    /*BASELINES*/
+    //the same fingerprints without labels, e.g. to find the rangeWidth at which the tree wins over iterating the keys:
+    //  java -jar target/benchmarks.jar "MyBenchmark.baseline" -p size=100000 -p degree=64
+
+    @Benchmark
+    public ExampleMonoid<Integer> baselineTree(BaselineState state){
+        //search of the start leaf + computeFingerprint over the labels, O(degree * height)
+        int i = state.next();
+        return state.tree.fingerprint(state.rangeStarts[i], state.rangeEnds[i]);
     }
 
     @Benchmark
-    public Pair<ExampleMonoid<Integer>, Pair<Node<Integer, Integer, ExampleMonoid<Integer>>, Integer>> computeFinger1000(Params1000 param){
-        //need to return see "JMHSample_10_DeadCode.java"
-        //return tree.get(param).computeFingerprint(secondArrayKey.get(param), leafFirstKey.get(param), indexFirstKey.get(param));
-        return param.tree.computeFingerprint(param.secondKey, param.leafFirstKey, param.indexFirstKey);
+    public ExampleMonoid<Integer> baselineTreeMap(BaselineState state){
+        //iterates every key of the range, O(log n + rangeWidth)
+        int i = state.next();
+        return state.treeMap.fingerprint(state.rangeStarts[i], state.rangeEnds[i]);
     }
 
     @Benchmark
-    public Pair<ExampleMonoid<Integer>, Pair<Node<Integer, Integer, ExampleMonoid<Integer>>, Integer>> computeFinger10000(Params10000 param){
-        //need to return see "JMHSample_10_DeadCode.java"
-        //return tree.get(param).computeFingerprint(secondArrayKey.get(param), leafFirstKey.get(param), indexFirstKey.get(param));
-        return param.tree.computeFingerprint(param.secondKey, param.leafFirstKey, param.indexFirstKey);
+    public ExampleMonoid<Integer> baselineSortedArray(BaselineState state){
+        //two binary searches and the prefix XOR, O(log n), but static
+        int i = state.next();
+        return state.sortedArray.fingerprint(state.rangeStarts[i], state.rangeEnds[i]);
     }
 }
@@ -4,15 +4,24 @@ import java.util.*;
 
 abstract class Node <Key extends Comparable<Key>, Value, M>{
     //any Node has: keys (more than one), parent pointer, (Sibling pointer?)
-    protected ArrayList<Key> keys;
+    protected Key[] keys;//fixed capacity of degree+1, so that a node can hold one extra key until overflow() splits it
+    protected int numKeys;//number of used entries in keys
+    protected final int degree;//maximum number of keys, set per Tree instance
     protected M label;
     protected Monoid<M, Key> monoid;
     //protected CountingMonoid<Value> monoid2 = new CountingMonoid<>();
     protected InnerNode<Key, Value, M> parent;
     protected int indexInParent;//corresponds to the children index
-
-    protected Node(Monoid<M, Key> monoid) {
-        this.keys = new ArrayList<Key>();//maximum 2*degree-1 Keys in every InnerNode
+    protected M[] prefixLabels;//optional (null = disabled): prefixLabels[i] = combination of the first i entries (children labels or key images)
+    protected M[] suffixLabels;//optional: suffixLabels[i] = combination of the entries from index i to the end
+    protected int numPrefixLabels;//number of entries the prefix aggregates were calculated for
+    protected boolean dirty;//the label has to be recalculated at the end of a batch (see Tree.insertAll), implies a dirty parent
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Node(Monoid<M, Key> monoid, int degree) {
+        this.degree = degree;
+        this.keys = (Key[]) new Comparable[degree + 1];//at most degree Keys in every Node (+1 during overflow)
+        this.numKeys = 0;
         this.monoid = monoid;//every node then calls "this.monoid.combine()"
         this.parent = null;
         indexInParent = 0;
@@ -20,23 +29,49 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
 
 
     public Key getKey(int index) {
-        return this.keys.get(index);
+        return this.keys[index];
     }
     public void setKey(int index, Key key) {
-        this.keys.set(index, key);//overwrites
+        this.keys[index] = key;//overwrites
     }
     public void addKeyIndex(int index, Key key) {
-        this.keys.add(index, key);//insert another element at index
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.numKeys - index);
+        this.keys[index] = key;//insert another element at index
+        this.numKeys++;
     }
     public void addKey(Key key) {
-        this.keys.add(key);//insert another element at the end
+        this.keys[this.numKeys++] = key;//insert another element at the end
     }
     public void removeKeyIndex(int index) {
-        this.keys.remove(index);//remove element at index
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.numKeys - index - 1);
+        this.keys[--this.numKeys] = null;//remove element at index
     }
 
     public int getSizeKeys(){
-        return this.keys.size();
+        return this.numKeys;
+    }
+
+    /**
+     * Binary search for the exact key
+     * @return index of key in this node or -1, if the node does not contain key
+     */
+    public int indexOfKey(Key key){
+        int i = this.searchNextBest(key);
+        if (i < this.numKeys && key.compareTo(this.keys[i]) == 0){
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the keys of this node as a list (for printing and testing)
+     */
+    public ArrayList<Key> getKeyList(){
+        ArrayList<Key> list = new ArrayList<Key>(this.numKeys);
+        for (int i = 0; i < this.numKeys; i++){
+            list.add(this.keys[i]);
+        }
+        return list;
     }
 
     public InnerNode<Key, Value, M> getParent() {
@@ -58,6 +93,36 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
      */
     public abstract void calculateLabel();
 
+    /**
+     * Allocates the prefix aggregates of this node, they are filled by the next calculateLabel
+     */
+    public abstract void enablePrefixLabels();
+
+    /**
+     * Combination of the entries from index "from" (inclusive) to index "to" (exclusive) of this node, taken from the
+     * prefix aggregates: one lookup, if the range starts at the beginning or ends at the end of the node, otherwise the
+     * uncombine of two prefixes for an {@link InvertibleMonoid}
+     * @return the combined entries or null, if the node has no prefix aggregates or they cannot answer the range
+     */
+    protected M prefixRange(int from, int to){
+        if (this.prefixLabels == null){
+            return null;
+        }
+        if (from == to){
+            return this.prefixLabels[0];//identity
+        }
+        if (from == 0){
+            return this.prefixLabels[to];
+        }
+        if (to == this.numPrefixLabels){
+            return this.suffixLabels[from];
+        }
+        if (this.monoid instanceof InvertibleMonoid){
+            return ((InvertibleMonoid<M, Key>) this.monoid).uncombine(this.prefixLabels[to], this.prefixLabels[from]);
+        }
+        return null;
+    }
+
     /**
      * recalculates all parent labels of the specified node
      */
@@ -69,6 +134,48 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
         }
     }
 
+    /**
+     * Incremental version of calculateLabel + recalculateParentLabels for an {@link InvertibleMonoid}, after exactly
+     * one key was added to this LeafNode: combines its image delta into the labels of this node and all parents
+     */
+    public void addToLabels(M delta){
+        Node<Key, Value, M> tmp = this;
+        while (tmp != null){
+            tmp.label = this.monoid.combine(tmp.label, delta);
+            tmp = tmp.parent;
+        }
+    }
+
+    /**
+     * Incremental version of calculateLabel + recalculateParentLabels for an {@link InvertibleMonoid}, after exactly
+     * one key was removed from this LeafNode: removes its image delta from the labels of this node and all parents.
+     * A label that cannot be inverted is recalculated (the labels below it are already correct then).
+     */
+    public void removeFromLabels(M delta){
+        InvertibleMonoid<M, Key> invertible = (InvertibleMonoid<M, Key>) this.monoid;
+        Node<Key, Value, M> tmp = this;
+        while (tmp != null){
+            M label = invertible.uncombine(tmp.label, delta);
+            if (label == null){
+                tmp.calculateLabel();
+            } else {
+                tmp.label = label;
+            }
+            tmp = tmp.parent;
+        }
+    }
+
+    /**
+     * marks this node and all its parents dirty, their labels are recalculated at the end of the batch
+     */
+    public void markDirty(){
+        Node<Key, Value, M> tmp = this;
+        while (tmp != null){
+            tmp.dirty = true;
+            tmp = tmp.parent;
+        }
+    }
+
     /** Search for the specified key in the certain node
      * and returns index of the value or the child associated with the key
      * exception: LeafNode does not contain key -> return -1
@@ -77,20 +184,21 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
 
     /* FOR INSERT */
     /**
-     * Search the correct index for insertion
+     * Search the correct index for insertion (binary search)
      * @return index of the first keys-entry that is bigger than key (if the key does not exist) or the exact key
      */
     public int searchNextBest(Key key){
-        int i = 0;
-        for (i = 0; i < this.keys.size(); i++){ //iterate over all keys
-            int compare = key.compareTo(this.keys.get(i));//-1 if key > keys[i], 0 if =, 1 if <
-            if (compare == 0){
-                return i;//entry already exists
-            } else if (compare < 0) {
-                return i;
+        int low = 0;
+        int high = this.numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid].compareTo(key) < 0){//keys[mid] < key -> the result is right of mid
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-        return i;
+        return low;
     }
 
     /**
@@ -100,20 +208,23 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
      * @return root node, if the last node that had an overflow was the original root, otherwise null
      */
     public Node<Key, Value, M> overflow(){
-        int midIndex = (this.keys.size()/2);//cuts the decimal part off -> round down
-        Key upKey = this.keys.get(midIndex);
+        int midIndex = (this.numKeys/2);//cuts the decimal part off -> round down
+        Key upKey = this.keys[midIndex];
 
         Node<Key, Value, M> newNode = this.split(midIndex);
 
         //setParents
         if (this.parent == null) {//we split the root node
-            this.parent = new InnerNode<Key, Value, M>(this.monoid);//make new root
+            this.parent = new InnerNode<Key, Value, M>(this.monoid, this.degree);//make new root
+            if (this.prefixLabels != null){
+                this.parent.enablePrefixLabels();
+            }
         }
         newNode.parent = this.parent;
 
         //push the upKey into the parent node and set index of childNode
         this.parent.insertNode(upKey, this, newNode);
-        if (this.parent.keys.size() > Tree.degree){//we have Overflow
+        if (this.parent.numKeys > this.degree){//we have Overflow
              return this.parent.overflow();
         } else {
             return this.parent.parent == null ? this.parent : null;//x?y:z = if x then y else z
@@ -146,7 +257,7 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
         if (this.parent == null){
             return false;//root node cannot have underflow
         }
-        return (this.keys.size() < (Tree.degree/2));
+        return (this.numKeys < (this.degree/2));
     }
 
     /**
@@ -161,7 +272,7 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
         //1: try to borrow a key from sibling
         Node<Key, Value, M> leftSibling = this.getLeftSibling();
         //has a left sibling and left sibling has more keys than minimum amount
-        if (leftSibling != null && leftSibling.parent == this.parent && leftSibling.keys.size() > Tree.degree/2) {
+        if (leftSibling != null && leftSibling.parent == this.parent && leftSibling.numKeys > this.degree/2) {
             this.transferLeftSibling(leftSibling);
             //Case X: cannot happen here because our node has a left sibling -> only the parent has
             //        a key reference, no other inner nodes
@@ -170,12 +281,12 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
 
         Node<Key, Value, M> rightSibling = this.getRightSibling();
         //has a right sibling and right sibling has more keys than minimum amount
-        if (rightSibling != null && rightSibling.parent == this.parent && rightSibling.keys.size() > Tree.degree/2) {
+        if (rightSibling != null && rightSibling.parent == this.parent && rightSibling.numKeys > this.degree/2) {
             this.transferRightSibling(rightSibling);
             //Case X: if a higher Node than parent contained the deleted key, then change that key to the new key
-            if (this.keys.size() == 1 && innerNode != this.parent && innerNode != null){
+            if (this.numKeys == 1 && innerNode != this.parent && innerNode != null){
                 //if the borrowed key is now the first key and innerNode is neither null nor the parent node then
-                innerNode.keys.set(innerNode.keys.indexOf(key), this.keys.get(0));
+                innerNode.setKey(innerNode.indexOfKey(key), this.keys[0]);
             }
             return null;
         }
@@ -192,13 +303,13 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
         }
         //Case X: if a higher Node than parent contained the reference key, then change that key to the new key
         if (innerNode != node.parent && innerNode != null){
-            innerNode.keys.set(innerNode.keys.indexOf(key), node.keys.get(0));
+            innerNode.setKey(innerNode.indexOfKey(key), node.keys[0]);
         }
 
         //Check on underflow and check if it's the root and if necessary change root node
-        if (parentTMP.keys.size() < (Tree.degree/2)){//we have underflow
+        if (parentTMP.numKeys < (this.degree/2)){//we have underflow
             if (parentTMP.parent == null){//our parent is root node
-                if (parentTMP.keys.size() == 0){//root now has 0 entries and one child => change root node to child
+                if (parentTMP.numKeys == 0){//root now has 0 entries and one child => change root node to child
                     node.parent = null;
                     return node;
                 } else {
@@ -238,6 +349,13 @@ abstract class Node <Key extends Comparable<Key>, Value, M>{
      */
     public abstract Pair<M, Integer> aggregate(int indexNode, Key y, int size, boolean upDown);
 
+    /**
+     * Works like aggregate, but combines the relevant keys into the accumulator acc instead of allocating a result
+     * @param acc the accumulator of the mutable monoid, is changed by this function
+     * @return the last index we looked at
+     */
+    public abstract int aggregateInto(MutableMonoid<M, Key> mutable, M acc, int indexNode, Key y, int size, boolean upDown);
+
     /* FOR TESTING AND VISUALISATION */
 
     /**
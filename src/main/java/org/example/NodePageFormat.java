@@ -0,0 +1,97 @@
+package org.example;
+
+/**
+ * The binary layout of a frozen tree image (written by Tree.freeze, read by {@link FrozenTree}).
+ * The file is a sequence of pages, page 0 is the header. The page size is the smallest power of two >= PAGE_SIZE that
+ * holds the biggest node of the tree, so no node crosses a page (or SEGMENT_SIZE) boundary. The nodes are packed:
+ * a node follows the previous one in the same page, if it fits into the rest of it, so small nodes share pages.
+ * Nodes refer to each other by address (byte offset in the file).
+ * All numbers are big endian (ByteBuffer default), keys and values are stored as longs.
+ *
+ * header:     MAGIC int | FROZEN_VERSION int | page size int | key type int | root address long | number of pages long |
+ *             root label: count long, hash long, greatest key long
+ * every node: type int (LEAF or INNER) | numKeys int | next leaf address long (-1 = none, only LeafNodes)
+ * LeafNode:   keys long[numKeys] | values long[numKeys]
+ * InnerNode:  keys long[numKeys] | child addresses long[numKeys + 1] | child labels (count, hash, greatest key) long[3 * (numKeys + 1)]
+ * A {@link PagedTree} file has the same header and node layout, but PAGE_SIZE pages with one node each, see PAGED_MAGIC.
+ */
+final class NodePageFormat {
+    static final int MAGIC = 0x46525a54;//"FRZT"
+    static final int VERSION = 1;//PagedTree files
+    static final int FROZEN_VERSION = 2;//frozen images with packed nodes and addresses instead of page numbers
+    static final int PAGE_SIZE = 4096;//the page size of PagedTree files, the minimum one of frozen images
+    static final long SEGMENT_SIZE = 1L << 30;//size of one MappedByteBuffer, a multiple of every page size
+
+    //key types: the hash of a key has to be the hashCode of the original key object, like in ExampleMonoid
+    static final int KEY_INTEGER = 0;
+    static final int KEY_LONG = 1;
+
+    //header offsets
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_PAGE_SIZE = 8;
+    static final int HEADER_KEY_TYPE = 12;
+    static final int HEADER_ROOT = 16;
+    static final int HEADER_PAGES = 24;
+    static final int HEADER_LABEL = 32;
+    static final int HEADER_SIZE = 56;//bytes of a frozen tree header
+    static final int HEADER_DEGREE = 56;//only PagedTree files
+
+    //PagedTree files use the same header and node layout, but with their own magic, page numbers instead of addresses
+    //and a fixed capacity of degree entries per node (pass the degree instead of numKeys to the offset functions),
+    //so an insert only shifts the entries
+    static final int PAGED_MAGIC = 0x50474454;//"PGDT"
+
+    //node offsets
+    static final int LEAF = 0;
+    static final int INNER = 1;
+    static final int NODE_TYPE = 0;
+    static final int NODE_NUM_KEYS = 4;
+    static final int NODE_NEXT_LEAF = 8;
+    static final int NODE_KEYS = 16;
+    static final int LABEL_BYTES = 24;
+
+    private NodePageFormat(){
+    }
+
+    static int keyOffset(int index){
+        return NODE_KEYS + 8 * index;
+    }
+
+    static int valueOffset(int numKeys, int index){
+        return NODE_KEYS + 8 * numKeys + 8 * index;
+    }
+
+    static int childOffset(int numKeys, int index){
+        return NODE_KEYS + 8 * numKeys + 8 * index;
+    }
+
+    /**
+     * offset of the count of the label of child index, the hash and the greatest key follow
+     */
+    static int childLabelOffset(int numKeys, int index){
+        return NODE_KEYS + 8 * numKeys + 8 * (numKeys + 1) + LABEL_BYTES * index;
+    }
+
+    static int nodeBytes(boolean leaf, int numKeys){
+        return leaf ? NODE_KEYS + 16 * numKeys : childLabelOffset(numKeys, numKeys + 1);
+    }
+
+    /**
+     * @return the page size of a frozen image whose biggest node has maxNodeBytes bytes
+     */
+    static int pageSize(int maxNodeBytes){
+        int pageSize = PAGE_SIZE;
+        while (pageSize < maxNodeBytes){
+            pageSize *= 2;
+        }
+        return pageSize;
+    }
+
+    /**
+     * @return the hash ExampleMonoid uses for the original key (Integer.hashCode or Long.hashCode)
+     */
+    static long hash(long key, int keyType){
+        return keyType == KEY_INTEGER ? Integer.hashCode((int) key) : Long.hashCode(key);
+    }
+}
@@ -0,0 +1,525 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * A mutable B+ tree with long keys and values whose nodes live in the pages of a file (layout: {@link NodePageFormat},
+ * every node has exactly one page) and are only cached in a {@link BufferPool}, so the tree can be much bigger than
+ * the heap. Every InnerNode page stores the labels ({@link LongExampleMonoid}) of its children, so a fingerprint reads
+ * at most two pages per level, the label of the whole tree is kept in the header page.
+ * insert and delete pin the pages of the path from the root to the LeafNode until the labels are updated,
+ * fingerprint and searchValue pin one page at a time.
+ * Deletes never fuse or borrow: a LeafNode may become empty and stays in the tree (the file never shrinks).
+ * Not thread safe. flush or close write the modified pages and the header back to the file.
+ */
+public class PagedTree implements Closeable {
+    public static final int MAX_DEGREE = (NodePageFormat.PAGE_SIZE - 48) / 40;//an InnerNode with degree keys has to fit in a page
+    private final BufferPool pool;
+    private final int degree;//maximum number of keys per node
+    private long rootPage;
+    private final long[] label = new long[3];//label of the whole tree: count, hash, greatest key
+
+    /**
+     * opens the tree in the file at path or creates a new one, if the file is empty
+     * @param degree    maximum number of keys per node (3 - MAX_DEGREE), has to match the degree of an existing file
+     * @param numFrames number of pages the buffer pool keeps in memory (at least the height of the tree + 2)
+     */
+    public PagedTree(Path path, int degree, int numFrames) throws IOException {
+        if (degree < 3 || degree > MAX_DEGREE){
+            throw new IllegalArgumentException("degree has to be in [3, " + MAX_DEGREE + "], was " + degree);
+        }
+        this.degree = degree;
+        this.pool = new BufferPool(path, numFrames);
+        if (this.pool.getNumPages() == 0){
+            BufferPool.Frame header = this.pool.allocate();
+            this.pool.unpin(header, true);
+            BufferPool.Frame root = this.pool.allocate();
+            root.buffer.putInt(NodePageFormat.NODE_TYPE, NodePageFormat.LEAF);
+            root.buffer.putLong(NodePageFormat.NODE_NEXT_LEAF, -1);
+            this.rootPage = root.page;
+            this.pool.unpin(root, true);
+            this.writeHeader();
+        } else {
+            BufferPool.Frame header = this.pool.pin(0);
+            try {
+                ByteBuffer b = header.buffer;
+                if (b.getInt(NodePageFormat.HEADER_MAGIC) != NodePageFormat.PAGED_MAGIC
+                        || b.getInt(NodePageFormat.HEADER_VERSION) != NodePageFormat.VERSION
+                        || b.getInt(NodePageFormat.HEADER_PAGE_SIZE) != NodePageFormat.PAGE_SIZE){
+                    throw new IOException(path + " is not a paged tree of this version");
+                }
+                if (b.getInt(NodePageFormat.HEADER_DEGREE) != degree){
+                    throw new IllegalArgumentException(path + " was created with degree " + b.getInt(NodePageFormat.HEADER_DEGREE) + ", not " + degree);
+                }
+                this.rootPage = b.getLong(NodePageFormat.HEADER_ROOT);
+                for (int i = 0; i < 3; i++){
+                    this.label[i] = b.getLong(NodePageFormat.HEADER_LABEL + 8 * i);
+                }
+            } finally {
+                this.pool.unpin(header, false);
+            }
+        }
+    }
+
+    public int getDegree(){
+        return this.degree;
+    }
+
+    public BufferPool getBufferPool(){
+        return this.pool;
+    }
+
+    /**
+     * @return the label of the whole tree
+     */
+    public LongExampleMonoid getLabel(){
+        return new LongExampleMonoid((int) this.label[0], this.label[1], this.label[2]);
+    }
+
+    /**
+     * writes the header and every modified page back to the file
+     */
+    public void flush() throws IOException {
+        this.writeHeader();
+        this.pool.flush();
+    }
+
+    public void close() throws IOException {
+        this.writeHeader();
+        this.pool.close();
+    }
+
+    private void writeHeader() throws IOException {
+        BufferPool.Frame header = this.pool.pin(0);
+        ByteBuffer b = header.buffer;
+        b.putInt(NodePageFormat.HEADER_MAGIC, NodePageFormat.PAGED_MAGIC);
+        b.putInt(NodePageFormat.HEADER_VERSION, NodePageFormat.VERSION);
+        b.putInt(NodePageFormat.HEADER_PAGE_SIZE, NodePageFormat.PAGE_SIZE);
+        b.putInt(NodePageFormat.HEADER_DEGREE, this.degree);
+        b.putLong(NodePageFormat.HEADER_ROOT, this.rootPage);
+        b.putLong(NodePageFormat.HEADER_PAGES, this.pool.getNumPages());
+        for (int i = 0; i < 3; i++){
+            b.putLong(NodePageFormat.HEADER_LABEL + 8 * i, this.label[i]);
+        }
+        this.pool.unpin(header, true);
+    }
+
+    /*PAGE ACCESS*/
+    private static boolean isLeaf(ByteBuffer b){
+        return b.getInt(NodePageFormat.NODE_TYPE) == NodePageFormat.LEAF;
+    }
+
+    private static int numKeys(ByteBuffer b){
+        return b.getInt(NodePageFormat.NODE_NUM_KEYS);
+    }
+
+    private static long key(ByteBuffer b, int index){
+        return b.getLong(NodePageFormat.keyOffset(index));
+    }
+
+    private long child(ByteBuffer b, int index){
+        return b.getLong(NodePageFormat.childOffset(this.degree, index));
+    }
+
+    /**
+     * @return the index of the first key >= key in the node (numKeys if there is none), like Node.searchNextBest
+     */
+    private static int searchNextBest(ByteBuffer b, int numKeys, long key){
+        int low = 0;
+        int high = numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (key(b, mid) < key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the child whose range contains key (= number of keys <= key), like InnerNode.searchInNode
+     */
+    private static int childIndex(ByteBuffer b, int numKeys, long key){
+        int low = 0;
+        int high = numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (key(b, mid) <= key){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * moves length bytes at offset by distance bytes (to the right if distance > 0)
+     */
+    private static void shift(ByteBuffer b, int offset, int length, int distance){
+        System.arraycopy(b.array(), offset, b.array(), offset + distance, length);
+    }
+
+    private void readChildLabel(ByteBuffer b, int index, long[] label){
+        int offset = NodePageFormat.childLabelOffset(this.degree, index);
+        for (int i = 0; i < 3; i++){
+            label[i] = b.getLong(offset + 8 * i);
+        }
+    }
+
+    private void writeChildLabel(ByteBuffer b, int index, long[] label){
+        int offset = NodePageFormat.childLabelOffset(this.degree, index);
+        for (int i = 0; i < 3; i++){
+            b.putLong(offset + 8 * i, label[i]);
+        }
+    }
+
+    /**
+     * works like LongExampleMonoid.combine(acc, (count, hash, greatest)), but writes the result into acc
+     */
+    private static void combine(long[] acc, long count, long hash, long greatest){
+        if (count == 0){
+            return;
+        }
+        acc[2] = acc[0] == 0 ? greatest : Math.max(acc[2], greatest);
+        acc[0] += count;
+        acc[1] ^= hash;
+    }
+
+    /**
+     * calculates the label of a node from its keys (LeafNode) or the labels of its children (InnerNode)
+     */
+    private long[] calculateLabel(ByteBuffer b){
+        long[] label = new long[3];
+        int numKeys = numKeys(b);
+        if (isLeaf(b)){
+            for (int i = 0; i < numKeys; i++){
+                combine(label, 1, Long.hashCode(key(b, i)), key(b, i));
+            }
+        } else {
+            for (int i = 0; i <= numKeys; i++){
+                int offset = NodePageFormat.childLabelOffset(this.degree, i);
+                combine(label, b.getLong(offset), b.getLong(offset + 8), b.getLong(offset + 16));
+            }
+        }
+        return label;
+    }
+
+    /*OPERATIONS*/
+    /**
+     * pins the pages from the root to the LeafNode that should contain key
+     * @param indexes gets the index of the child that was taken in every InnerNode
+     */
+    private ArrayList<BufferPool.Frame> pinPath(long key, ArrayList<Integer> indexes) throws IOException {
+        ArrayList<BufferPool.Frame> path = new ArrayList<>();
+        try {
+            BufferPool.Frame frame = this.pool.pin(this.rootPage);
+            path.add(frame);
+            while (!isLeaf(frame.buffer)){
+                int index = childIndex(frame.buffer, numKeys(frame.buffer), key);
+                indexes.add(index);
+                frame = this.pool.pin(child(frame.buffer, index));
+                path.add(frame);
+            }
+            return path;
+        } catch (IOException | RuntimeException e){
+            this.unpinPath(path, false);
+            throw e;
+        }
+    }
+
+    private void unpinPath(ArrayList<BufferPool.Frame> path, boolean dirty){
+        for (BufferPool.Frame frame : path){
+            this.pool.unpin(frame, dirty);
+        }
+    }
+
+    /**
+     * @return value associated with the specified key or null
+     */
+    public Long searchValue(long key) throws IOException {
+        long page = this.rootPage;
+        while (true){
+            BufferPool.Frame frame = this.pool.pin(page);
+            try {
+                ByteBuffer b = frame.buffer;
+                int numKeys = numKeys(b);
+                if (!isLeaf(b)){
+                    page = child(b, childIndex(b, numKeys, key));
+                    continue;
+                }
+                int index = searchNextBest(b, numKeys, key);
+                if (index < numKeys && key(b, index) == key){
+                    return b.getLong(NodePageFormat.valueOffset(this.degree, index));
+                }
+                return null;
+            } finally {
+                this.pool.unpin(frame, false);
+            }
+        }
+    }
+
+    /**
+     * inserts key with value or replaces the value of key, splits full nodes on the way up to the root
+     */
+    public void insert(long key, long value) throws IOException {
+        ArrayList<Integer> indexes = new ArrayList<>();
+        ArrayList<BufferPool.Frame> path = this.pinPath(key, indexes);
+        boolean dirty = false;
+        try {
+            ByteBuffer leaf = path.get(path.size() - 1).buffer;
+            int numKeys = numKeys(leaf);
+            int index = searchNextBest(leaf, numKeys, key);
+            dirty = true;
+            if (index < numKeys && key(leaf, index) == key){//only the value changes -> the labels stay the same
+                leaf.putLong(NodePageFormat.valueOffset(this.degree, index), value);
+                return;
+            }
+            //the split of the level below: key in front of the new node, its page and its label (no split -> null)
+            long upKey = 0;
+            BufferPool.Frame newNode = null;
+            if (numKeys < this.degree){
+                shift(leaf, NodePageFormat.keyOffset(index), 8 * (numKeys - index), 8);
+                shift(leaf, NodePageFormat.valueOffset(this.degree, index), 8 * (numKeys - index), 8);
+                leaf.putLong(NodePageFormat.keyOffset(index), key);
+                leaf.putLong(NodePageFormat.valueOffset(this.degree, index), value);
+                leaf.putInt(NodePageFormat.NODE_NUM_KEYS, numKeys + 1);
+            } else {
+                newNode = this.splitLeaf(leaf, index, key, value);
+                upKey = key(newNode.buffer, 0);
+            }
+            //update the labels (and insert the new nodes) from the bottom up
+            for (int level = path.size() - 2; level >= 0; level--){
+                ByteBuffer inner = path.get(level).buffer;
+                int childIndex = indexes.get(level);
+                this.writeChildLabel(inner, childIndex, this.calculateLabel(path.get(level + 1).buffer));
+                if (newNode == null){
+                    continue;
+                }
+                long[] newLabel = this.calculateLabel(newNode.buffer);
+                long newPage = newNode.page;
+                this.pool.unpin(newNode, true);
+                newNode = null;
+                numKeys = numKeys(inner);
+                if (numKeys < this.degree){
+                    shift(inner, NodePageFormat.keyOffset(childIndex), 8 * (numKeys - childIndex), 8);
+                    shift(inner, NodePageFormat.childOffset(this.degree, childIndex + 1), 8 * (numKeys - childIndex), 8);
+                    shift(inner, NodePageFormat.childLabelOffset(this.degree, childIndex + 1), NodePageFormat.LABEL_BYTES * (numKeys - childIndex), NodePageFormat.LABEL_BYTES);
+                    inner.putLong(NodePageFormat.keyOffset(childIndex), upKey);
+                    inner.putLong(NodePageFormat.childOffset(this.degree, childIndex + 1), newPage);
+                    this.writeChildLabel(inner, childIndex + 1, newLabel);
+                    inner.putInt(NodePageFormat.NODE_NUM_KEYS, numKeys + 1);
+                } else {
+                    long[] up = new long[1];
+                    newNode = this.splitInner(inner, childIndex, upKey, newPage, newLabel, up);
+                    upKey = up[0];
+                }
+            }
+            if (newNode != null){//the root was split -> new root with two children
+                long[] newLabel = this.calculateLabel(newNode.buffer);
+                BufferPool.Frame root = this.pool.allocate();
+                ByteBuffer b = root.buffer;
+                b.putInt(NodePageFormat.NODE_TYPE, NodePageFormat.INNER);
+                b.putInt(NodePageFormat.NODE_NUM_KEYS, 1);
+                b.putLong(NodePageFormat.NODE_NEXT_LEAF, -1);
+                b.putLong(NodePageFormat.keyOffset(0), upKey);
+                b.putLong(NodePageFormat.childOffset(this.degree, 0), this.rootPage);
+                b.putLong(NodePageFormat.childOffset(this.degree, 1), newNode.page);
+                this.writeChildLabel(b, 0, this.calculateLabel(path.get(0).buffer));
+                this.writeChildLabel(b, 1, newLabel);
+                this.pool.unpin(newNode, true);
+                newNode = null;
+                path.add(0, root);//unpinned with the path
+                this.rootPage = root.page;
+            }
+            System.arraycopy(this.calculateLabel(path.get(0).buffer), 0, this.label, 0, 3);
+        } finally {
+            this.unpinPath(path, dirty);
+        }
+    }
+
+    /**
+     * splits the full LeafNode leaf into itself and a new right sibling while it inserts key at index
+     * @return the pinned frame of the new right sibling
+     */
+    private BufferPool.Frame splitLeaf(ByteBuffer leaf, int index, long key, long value) throws IOException {
+        int numKeys = numKeys(leaf);
+        long[] keys = new long[numKeys + 1];
+        long[] values = new long[numKeys + 1];
+        for (int i = 0, j = 0; i <= numKeys; i++){
+            if (i == index){
+                keys[i] = key;
+                values[i] = value;
+            } else {
+                keys[i] = key(leaf, j);
+                values[i] = leaf.getLong(NodePageFormat.valueOffset(this.degree, j));
+                j++;
+            }
+        }
+        int leftSize = (numKeys + 1)/2;
+        BufferPool.Frame right = this.pool.allocate();
+        ByteBuffer b = right.buffer;
+        b.putInt(NodePageFormat.NODE_TYPE, NodePageFormat.LEAF);
+        b.putLong(NodePageFormat.NODE_NEXT_LEAF, leaf.getLong(NodePageFormat.NODE_NEXT_LEAF));
+        leaf.putLong(NodePageFormat.NODE_NEXT_LEAF, right.page);
+        this.writeLeafEntries(leaf, keys, values, 0, leftSize);
+        this.writeLeafEntries(b, keys, values, leftSize, numKeys + 1);
+        return right;
+    }
+
+    private void writeLeafEntries(ByteBuffer b, long[] keys, long[] values, int from, int to){
+        for (int i = from; i < to; i++){
+            b.putLong(NodePageFormat.keyOffset(i - from), keys[i]);
+            b.putLong(NodePageFormat.valueOffset(this.degree, i - from), values[i]);
+        }
+        b.putInt(NodePageFormat.NODE_NUM_KEYS, to - from);
+    }
+
+    /**
+     * splits the full InnerNode inner into itself and a new right sibling while it inserts key and the child
+     * behind it at index
+     * @param up gets the key that separates the two nodes in their parent
+     * @return the pinned frame of the new right sibling
+     */
+    private BufferPool.Frame splitInner(ByteBuffer inner, int index, long key, long child, long[] childLabel, long[] up) throws IOException {
+        int numKeys = numKeys(inner);
+        long[] keys = new long[numKeys + 1];
+        long[] children = new long[numKeys + 2];
+        long[][] labels = new long[numKeys + 2][];
+        for (int i = 0, j = 0; i <= numKeys; i++){
+            keys[i] = i == index ? key : key(inner, j++);
+        }
+        for (int i = 0, j = 0; i <= numKeys + 1; i++){
+            if (i == index + 1){
+                children[i] = child;
+                labels[i] = childLabel;
+            } else {
+                children[i] = child(inner, j);
+                labels[i] = new long[3];
+                this.readChildLabel(inner, j, labels[i]);
+                j++;
+            }
+        }
+        int middle = (numKeys + 1)/2;//keys[middle] moves up
+        up[0] = keys[middle];
+        BufferPool.Frame right = this.pool.allocate();
+        ByteBuffer b = right.buffer;
+        b.putInt(NodePageFormat.NODE_TYPE, NodePageFormat.INNER);
+        b.putLong(NodePageFormat.NODE_NEXT_LEAF, -1);
+        this.writeInnerEntries(inner, keys, children, labels, 0, middle);
+        this.writeInnerEntries(b, keys, children, labels, middle + 1, numKeys + 1);
+        return right;
+    }
+
+    /**
+     * writes keys[from, to) and children[from, to] with their labels into b
+     */
+    private void writeInnerEntries(ByteBuffer b, long[] keys, long[] children, long[][] labels, int from, int to){
+        for (int i = from; i < to; i++){
+            b.putLong(NodePageFormat.keyOffset(i - from), keys[i]);
+        }
+        for (int i = from; i <= to; i++){
+            b.putLong(NodePageFormat.childOffset(this.degree, i - from), children[i]);
+            this.writeChildLabel(b, i - from, labels[i]);
+        }
+        b.putInt(NodePageFormat.NODE_NUM_KEYS, to - from);
+    }
+
+    /**
+     * removes key (if it exists) from its LeafNode and updates the labels on the path, nodes are never fused
+     */
+    public void delete(long key) throws IOException {
+        ArrayList<Integer> indexes = new ArrayList<>();
+        ArrayList<BufferPool.Frame> path = this.pinPath(key, indexes);
+        boolean dirty = false;
+        try {
+            ByteBuffer leaf = path.get(path.size() - 1).buffer;
+            int numKeys = numKeys(leaf);
+            int index = searchNextBest(leaf, numKeys, key);
+            if (index == numKeys || key(leaf, index) != key){
+                return;
+            }
+            shift(leaf, NodePageFormat.keyOffset(index + 1), 8 * (numKeys - index - 1), -8);
+            shift(leaf, NodePageFormat.valueOffset(this.degree, index + 1), 8 * (numKeys - index - 1), -8);
+            leaf.putInt(NodePageFormat.NODE_NUM_KEYS, numKeys - 1);
+            for (int level = path.size() - 2; level >= 0; level--){
+                this.writeChildLabel(path.get(level).buffer, indexes.get(level), this.calculateLabel(path.get(level + 1).buffer));
+            }
+            System.arraycopy(this.calculateLabel(path.get(0).buffer), 0, this.label, 0, 3);
+            dirty = true;
+        } finally {
+            this.unpinPath(path, dirty);
+        }
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) from the top down: the labels of the children that lie completely
+     * inside the range are read from their parent page, only the pages on the paths to x and y are pinned (one at a time)
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     */
+    public LongExampleMonoid fingerprint(Long x, Long y) throws IOException {
+        long[] acc = new long[3];
+        if (x == null || y == null || x < y){
+            this.aggregate(this.rootPage, x, y, acc);
+        }
+        return new LongExampleMonoid((int) acc[0], acc[1], acc[2]);
+    }
+
+    private void aggregate(long page, Long x, Long y, long[] acc) throws IOException {
+        long left = -1;//child that contains x, -1 if it lies completely inside the range
+        long right = -1;//child that contains y, -1 if it lies completely inside the range
+        long[] middle = new long[3];//labels of the children between left and right
+        boolean single;
+        BufferPool.Frame frame = this.pool.pin(page);
+        try {
+            ByteBuffer b = frame.buffer;
+            int numKeys = numKeys(b);
+            if (isLeaf(b)){
+                int from = x == null ? 0 : searchNextBest(b, numKeys, x);
+                int to = y == null ? numKeys : searchNextBest(b, numKeys, y);
+                for (int i = from; i < to; i++){
+                    combine(acc, 1, Long.hashCode(key(b, i)), key(b, i));
+                }
+                return;
+            }
+            int from = x == null ? 0 : childIndex(b, numKeys, x);
+            int to = y == null ? numKeys : childIndex(b, numKeys, y);
+            single = from == to;
+            if (single){
+                left = child(b, from);
+            } else {
+                long[] label = new long[3];
+                for (int i = from; i <= to; i++){
+                    if (i == from && x != null){
+                        left = child(b, i);
+                    } else if (i == to && y != null){
+                        right = child(b, i);
+                    } else {
+                        this.readChildLabel(b, i, label);
+                        combine(i == from ? acc : middle, label[0], label[1], label[2]);
+                    }
+                }
+            }
+        } finally {
+            this.pool.unpin(frame, false);
+        }
+        if (single){
+            this.aggregate(left, x, y, acc);
+            return;
+        }
+        if (left != -1){
+            this.aggregate(left, x, null, acc);
+        }
+        combine(acc, middle[0], middle[1], middle[2]);
+        if (right != -1){
+            this.aggregate(right, null, y, acc);
+        }
+    }
+}
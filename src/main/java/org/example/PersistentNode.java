@@ -0,0 +1,183 @@
+package org.example;
+
+/**
+ * A node of a {@link PersistentTree}. In contrast to {@link Node} it has no parent or sibling pointers, so a node can
+ * be shared by many versions of the tree. A node is never changed after the operation that created it has finished:
+ * only the owner of the edit token the node was created with may change it in place (see PersistentTree.editable).
+ */
+final class PersistentNode <Key extends Comparable<Key>, Value, M>{
+    final Object edit;//token of the operation/batch that created this node
+    Key[] keys;//capacity degree+1, like Node.keys
+    int numKeys;
+    Value[] values;//only LeafNodes: values[i] belongs to keys[i]
+    PersistentNode<Key, Value, M>[] children;//only InnerNodes: numKeys + 1 children, capacity degree+2
+    M label;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    PersistentNode(int degree, boolean leaf, Object edit){
+        this.edit = edit;
+        this.keys = (Key[]) new Comparable[degree + 1];
+        if (leaf){
+            this.values = (Value[]) new Object[degree + 1];
+        } else {
+            this.children = (PersistentNode<Key, Value, M>[]) new PersistentNode[degree + 2];
+        }
+    }
+
+    /**
+     * copy of node, that belongs to edit
+     */
+    PersistentNode(PersistentNode<Key, Value, M> node, Object edit){
+        this.edit = edit;
+        this.keys = node.keys.clone();
+        this.numKeys = node.numKeys;
+        this.values = node.values == null ? null : node.values.clone();
+        this.children = node.children == null ? null : node.children.clone();
+        this.label = node.label;
+    }
+
+    boolean isLeaf(){
+        return this.children == null;
+    }
+
+    int numChildren(){
+        return this.numKeys + 1;
+    }
+
+    /**
+     * @return the index of the first key >= key (numKeys if there is none)
+     */
+    int searchNextBest(Key key){
+        int low = 0;
+        int high = this.numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid].compareTo(key) < 0){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the child whose range contains key (= number of keys <= key)
+     */
+    int childIndex(Key key){
+        int low = 0;
+        int high = this.numKeys;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid].compareTo(key) <= 0){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of key in this LeafNode or -1
+     */
+    int indexOfKey(Key key){
+        int i = searchNextBest(key);
+        if (i < this.numKeys && key.compareTo(this.keys[i]) == 0){
+            return i;
+        }
+        return -1;
+    }
+
+    void insertEntry(int index, Key key, Value value){
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.numKeys - index);
+        System.arraycopy(this.values, index, this.values, index + 1, this.numKeys - index);
+        this.keys[index] = key;
+        this.values[index] = value;
+        this.numKeys++;
+    }
+
+    void removeEntry(int index){
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.numKeys - index - 1);
+        System.arraycopy(this.values, index + 1, this.values, index, this.numKeys - index - 1);
+        this.numKeys--;
+        this.keys[this.numKeys] = null;
+        this.values[this.numKeys] = null;
+    }
+
+    /**
+     * inserts key at index and child right of it (at index + 1)
+     */
+    void insertChild(int index, Key key, PersistentNode<Key, Value, M> child){
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.numKeys - index);
+        System.arraycopy(this.children, index + 1, this.children, index + 2, this.numKeys - index);
+        this.keys[index] = key;
+        this.children[index + 1] = child;
+        this.numKeys++;
+    }
+
+    /**
+     * removes the key at index and the child right of it (at index + 1)
+     */
+    void removeChild(int index){
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.numKeys - index - 1);
+        System.arraycopy(this.children, index + 2, this.children, index + 1, this.numKeys - index - 1);
+        this.numKeys--;
+        this.keys[this.numKeys] = null;
+        this.children[this.numKeys + 1] = null;
+    }
+
+    void calculateLabel(Monoid<M, Key> monoid){
+        M acc = monoid.identity();
+        if (isLeaf()){
+            for (int i = 0; i < this.numKeys; i++){
+                acc = monoid.combine(acc, monoid.mapIntoMonoid(this.keys[i]));
+            }
+        } else {
+            for (int i = 0; i < numChildren(); i++){
+                acc = monoid.combine(acc, this.children[i].label);
+            }
+        }
+        this.label = acc;
+    }
+
+    Value searchValue(Key key){
+        PersistentNode<Key, Value, M> node = this;
+        while (!node.isLeaf()){
+            node = node.children[node.childIndex(key)];
+        }
+        int index = node.indexOfKey(key);
+        return index == -1 ? null : node.values[index];
+    }
+
+    /**
+     * Aggregates the keys of this subtree in [x, y) from the top down: the children that lie completely inside the
+     * range only add their label, only the (at most two) children that contain x or y are visited
+     * @param x null = unbounded
+     * @param y null = unbounded
+     */
+    M aggregate(Monoid<M, Key> monoid, Key x, Key y){
+        if (x == null && y == null){
+            return this.label;
+        }
+        if (isLeaf()){
+            int from = x == null ? 0 : searchNextBest(x);
+            int to = y == null ? this.numKeys : searchNextBest(y);
+            M acc = monoid.identity();
+            for (int i = from; i < to; i++){
+                acc = monoid.combine(acc, monoid.mapIntoMonoid(this.keys[i]));
+            }
+            return acc;
+        }
+        int from = x == null ? 0 : childIndex(x);
+        int to = y == null ? this.numKeys : childIndex(y);
+        if (from == to){
+            return this.children[from].aggregate(monoid, x, y);
+        }
+        M acc = this.children[from].aggregate(monoid, x, null);
+        for (int i = from + 1; i < to; i++){
+            acc = monoid.combine(acc, this.children[i].label);
+        }
+        return monoid.combine(acc, this.children[to].aggregate(monoid, null, y));
+    }
+}
@@ -0,0 +1,333 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A persistent (copy-on-write) B+ tree: insert and delete never change a node that readers can see, they copy the
+ * path from the root to the leaf (with recalculated labels) and publish the new root at the end. So
+ * {@link #snapshot()} is O(1) and every snapshot stays consistent while writers continue; old versions are collected
+ * by the GC as soon as no snapshot references them.
+ * Writers are serialized (synchronized), readers never wait.
+ * Every operation gets an edit token: nodes created with the token of the running operation are not visible yet and
+ * are changed in place, so a batch (applyBatch) copies every node at most once instead of once per key.
+ */
+public class PersistentTree <Key extends Comparable<Key>, Value, M>{
+    private final Monoid<M, Key> monoid;
+    private final int degree;//maximum number of keys per node, like Tree.degree
+    private volatile PersistentNode<Key, Value, M> root;
+    private boolean inBatch;//applyBatch is running: labels are calculated once at the end instead of after every key
+
+    public PersistentTree(Monoid<M, Key> monoid){
+        this(monoid, Tree.DEFAULT_DEGREE);
+    }
+
+    public PersistentTree(Monoid<M, Key> monoid, int degree){
+        if (degree < 3){
+            throw new IllegalArgumentException("degree has to be at least 3, was " + degree);
+        }
+        this.monoid = monoid;
+        this.degree = degree;
+        PersistentNode<Key, Value, M> leaf = new PersistentNode<>(degree, true, new Object());
+        leaf.label = monoid.identity();
+        this.root = leaf;
+    }
+
+    /**
+     * @return an immutable view of the current version, O(1)
+     */
+    public TreeSnapshot<Key, Value, M> snapshot(){
+        return new TreeSnapshot<>(this.root, this.monoid);
+    }
+
+    public Value searchValue(Key key){
+        return this.root.searchValue(key);
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) of the current version
+     */
+    public M fingerprint(Key x, Key y){
+        return snapshot().fingerprint(x, y);
+    }
+
+    public synchronized void insert(Key key, Value value){
+        this.root = insertRoot(this.root, key, value, new Object());
+    }
+
+    public synchronized void delete(Key key){
+        this.root = deleteRoot(this.root, key, new Object());
+    }
+
+    public void insertAll(List<Pair<Key, Value>> entries){
+        applyBatch(entries, Collections.<Key>emptyList());
+    }
+
+    public void deleteAll(Collection<Key> keys){
+        applyBatch(Collections.<Pair<Key, Value>>emptyList(), keys);
+    }
+
+    /**
+     * Applies all upserts and then all deletes with one edit token and publishes the result at once:
+     * readers see either none or all of the changes. Nodes copied by the batch are changed in place afterwards, and
+     * their labels are calculated once at the end of the batch (sorted keys touch every node as few times as possible).
+     */
+    public synchronized void applyBatch(List<Pair<Key, Value>> upserts, Collection<Key> deletes){
+        Object edit = new Object();
+        PersistentNode<Key, Value, M> node = this.root;
+        this.inBatch = true;
+        try {
+            for (Pair<Key, Value> entry : upserts){
+                node = insertRoot(node, entry.getFirst(), entry.getSecond(), edit);
+            }
+            for (Key key : deletes){
+                node = deleteRoot(node, key, edit);
+            }
+        } finally {
+            this.inBatch = false;
+        }
+        refreshLabels(node, edit);
+        this.root = node;//publish
+    }
+
+    private void updateLabel(PersistentNode<Key, Value, M> node){
+        if (!this.inBatch){
+            node.calculateLabel(this.monoid);
+        }
+    }
+
+    /**
+     * calculates the labels of all nodes of the batch bottom-up, like Tree.refreshLabels:
+     * nodes that do not belong to edit were not changed by the batch, so neither was their subtree
+     */
+    private void refreshLabels(PersistentNode<Key, Value, M> node, Object edit){
+        if (node.edit != edit){
+            return;
+        }
+        if (!node.isLeaf()){
+            for (int i = 0; i < node.numChildren(); i++){
+                refreshLabels(node.children[i], edit);
+            }
+        }
+        node.calculateLabel(this.monoid);
+    }
+
+    /**
+     * @return node itself, if it belongs to the running operation, otherwise a copy that belongs to it
+     */
+    private PersistentNode<Key, Value, M> editable(PersistentNode<Key, Value, M> node, Object edit){
+        return node.edit == edit ? node : new PersistentNode<>(node, edit);
+    }
+
+    /*FOR INSERT*/
+    private PersistentNode<Key, Value, M> insertRoot(PersistentNode<Key, Value, M> root, Key key, Value value, Object edit){
+        PersistentNode<Key, Value, M> node = insert(root, key, value, edit);
+        if (node == null){
+            return root;//nothing changed
+        }
+        Pair<Key, PersistentNode<Key, Value, M>> split = splitIfOverflow(node, edit);
+        if (split == null){
+            return node;
+        }
+        //the root was split -> new root with the two halves as children
+        PersistentNode<Key, Value, M> newRoot = new PersistentNode<>(this.degree, false, edit);
+        newRoot.children[0] = node;
+        newRoot.keys[0] = split.getFirst();
+        newRoot.children[1] = split.getSecond();
+        newRoot.numKeys = 1;
+        updateLabel(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * inserts key into the subtree of node, the returned node may have an overflow (-> splitIfOverflow by the caller)
+     * @return the new version of node or null, if nothing changed
+     *         (a node that belongs to edit is changed in place, so the reference alone does not tell)
+     */
+    private PersistentNode<Key, Value, M> insert(PersistentNode<Key, Value, M> node, Key key, Value value, Object edit){
+        PersistentNode<Key, Value, M> result;
+        if (node.isLeaf()){
+            int i = node.searchNextBest(key);
+            if (i < node.numKeys && node.keys[i].compareTo(key) == 0){//key already exists -> replace the value
+                if (node.values[i] == value){
+                    return null;
+                }
+                result = editable(node, edit);
+                result.values[i] = value;
+                return result;//same keys -> same label
+            }
+            result = editable(node, edit);
+            result.insertEntry(i, key, value);
+        } else {
+            int i = node.childIndex(key);
+            PersistentNode<Key, Value, M> child = insert(node.children[i], key, value, edit);
+            if (child == null){
+                return null;
+            }
+            result = editable(node, edit);
+            result.children[i] = child;
+            Pair<Key, PersistentNode<Key, Value, M>> split = splitIfOverflow(child, edit);
+            if (split != null){
+                result.insertChild(i, split.getFirst(), split.getSecond());
+            }
+        }
+        if (result.numKeys <= this.degree){
+            updateLabel(result);//otherwise splitIfOverflow calculates the labels of both halves
+        }
+        return result;
+    }
+
+    /**
+     * Splits node (which belongs to edit) in the middle, if it has an overflow, like Node.overflow
+     * @return the up key and the new right node, null if node has no overflow
+     */
+    private Pair<Key, PersistentNode<Key, Value, M>> splitIfOverflow(PersistentNode<Key, Value, M> node, Object edit){
+        if (node.numKeys <= this.degree){
+            return null;
+        }
+        int mid = node.numKeys/2;
+        int size = node.numKeys;
+        PersistentNode<Key, Value, M> right = new PersistentNode<>(this.degree, node.isLeaf(), edit);
+        Key upKey;
+        if (node.isLeaf()){
+            //the right LeafNode gets keys[mid..], its first key is the up key
+            System.arraycopy(node.keys, mid, right.keys, 0, size - mid);
+            System.arraycopy(node.values, mid, right.values, 0, size - mid);
+            right.numKeys = size - mid;
+            for (int i = mid; i < size; i++){
+                node.keys[i] = null;
+                node.values[i] = null;
+            }
+            upKey = right.keys[0];
+        } else {
+            //keys[mid] moves up, the right InnerNode gets the keys after it and the children right of it
+            upKey = node.keys[mid];
+            System.arraycopy(node.keys, mid + 1, right.keys, 0, size - mid - 1);
+            System.arraycopy(node.children, mid + 1, right.children, 0, size - mid);
+            right.numKeys = size - mid - 1;
+            for (int i = mid; i < size; i++){
+                node.keys[i] = null;
+                node.children[i + 1] = null;
+            }
+        }
+        node.numKeys = mid;
+        updateLabel(node);
+        updateLabel(right);
+        return new Pair<>(upKey, right);
+    }
+
+    /*FOR DELETE*/
+    private PersistentNode<Key, Value, M> deleteRoot(PersistentNode<Key, Value, M> root, Key key, Object edit){
+        PersistentNode<Key, Value, M> node = delete(root, key, edit);
+        if (node == null){
+            return root;//key does not exist
+        }
+        if (!node.isLeaf() && node.numKeys == 0){//root has only one child left -> the child is the new root
+            return node.children[0];
+        }
+        return node;
+    }
+
+    /**
+     * deletes key from the subtree of node, the returned node may have an underflow (fixed by its parent)
+     * @return the new version of node or null, if key does not exist
+     */
+    private PersistentNode<Key, Value, M> delete(PersistentNode<Key, Value, M> node, Key key, Object edit){
+        PersistentNode<Key, Value, M> result;
+        if (node.isLeaf()){
+            int i = node.indexOfKey(key);
+            if (i == -1){
+                return null;
+            }
+            result = editable(node, edit);
+            result.removeEntry(i);
+        } else {
+            //the separators do not have to be changed: they still separate the children, even if they are deleted keys
+            int i = node.childIndex(key);
+            PersistentNode<Key, Value, M> child = delete(node.children[i], key, edit);
+            if (child == null){
+                return null;
+            }
+            result = editable(node, edit);
+            result.children[i] = child;
+            if (child.numKeys < this.degree/2){
+                fixUnderflow(result, i, edit);
+            }
+        }
+        updateLabel(result);
+        return result;
+    }
+
+    /**
+     * The child at index of parent has an underflow: borrow an entry from a sibling or fuse it with a sibling,
+     * like Node.underflow (parent and child belong to edit, siblings are copied before they are changed)
+     */
+    private void fixUnderflow(PersistentNode<Key, Value, M> parent, int index, Object edit){
+        PersistentNode<Key, Value, M> child = parent.children[index];
+        //1: try to borrow from the left sibling, then from the right sibling
+        if (index > 0 && parent.children[index - 1].numKeys > this.degree/2){
+            PersistentNode<Key, Value, M> left = editable(parent.children[index - 1], edit);
+            parent.children[index - 1] = left;
+            int last = left.numKeys - 1;
+            if (child.isLeaf()){
+                child.insertEntry(0, left.keys[last], left.values[last]);
+                left.removeEntry(last);
+                parent.keys[index - 1] = child.keys[0];
+            } else {
+                //rotate: the separator moves down into child, the last key of left moves up
+                System.arraycopy(child.children, 0, child.children, 1, child.numKeys + 1);
+                System.arraycopy(child.keys, 0, child.keys, 1, child.numKeys);
+                child.keys[0] = parent.keys[index - 1];
+                child.children[0] = left.children[last + 1];
+                child.numKeys++;
+                parent.keys[index - 1] = left.keys[last];
+                left.keys[last] = null;
+                left.children[last + 1] = null;
+                left.numKeys--;
+            }
+            updateLabel(left);
+            updateLabel(child);
+            return;
+        }
+        if (index < parent.numKeys && parent.children[index + 1].numKeys > this.degree/2){
+            PersistentNode<Key, Value, M> right = editable(parent.children[index + 1], edit);
+            parent.children[index + 1] = right;
+            if (child.isLeaf()){
+                child.insertEntry(child.numKeys, right.keys[0], right.values[0]);
+                right.removeEntry(0);
+                parent.keys[index] = right.keys[0];
+            } else {
+                child.keys[child.numKeys] = parent.keys[index];
+                child.children[child.numKeys + 1] = right.children[0];
+                child.numKeys++;
+                parent.keys[index] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0, right.numKeys - 1);
+                System.arraycopy(right.children, 1, right.children, 0, right.numKeys);
+                right.numKeys--;
+                right.keys[right.numKeys] = null;
+                right.children[right.numKeys + 1] = null;
+            }
+            updateLabel(right);
+            updateLabel(child);
+            return;
+        }
+        //2: fuse with a sibling: the right one of the two nodes is appended to the left one
+        int leftIndex = index > 0 ? index - 1 : index;
+        PersistentNode<Key, Value, M> left = editable(parent.children[leftIndex], edit);
+        PersistentNode<Key, Value, M> right = parent.children[leftIndex + 1];
+        if (left.isLeaf()){
+            System.arraycopy(right.keys, 0, left.keys, left.numKeys, right.numKeys);
+            System.arraycopy(right.values, 0, left.values, left.numKeys, right.numKeys);
+            left.numKeys += right.numKeys;
+        } else {
+            left.keys[left.numKeys] = parent.keys[leftIndex];//the separator moves down between the two halves
+            System.arraycopy(right.keys, 0, left.keys, left.numKeys + 1, right.numKeys);
+            System.arraycopy(right.children, 0, left.children, left.numKeys + 1, right.numKeys + 1);
+            left.numKeys += right.numKeys + 1;
+        }
+        updateLabel(left);
+        parent.children[leftIndex] = left;
+        parent.removeChild(leftIndex);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+/**
+ * Streams the key-value pairs of a range [x, y) of a {@link Tree} in ascending order without copying them into a list.
+ * The cursor searches the first LeafNode once and then follows the right siblings, every LeafNode costs one binary search
+ * for the end of the range. Stopping early is free: simply stop calling next.
+ * The cursor is only valid as long as the tree is not modified.
+ */
+public class RangeCursor <Key extends Comparable<Key>, Value, M>{
+    private final Key end;//exclusive, null = unbounded
+    private LeafNode<Key, Value, M> leaf;//null when the range is exhausted
+    private int index;//the entry of leaf that next() returns next
+    private int leafEnd;//index of the first entry of leaf that is not in the range
+    private Key key;
+    private Value value;
+
+    /**
+     * @param leaf  the LeafNode that contains the first key of the range
+     * @param index the index of the first key >= x in leaf
+     * @param y     end of the range (exclusive), null if the range is unbounded to the right
+     */
+    RangeCursor(LeafNode<Key, Value, M> leaf, int index, Key y){
+        this.end = y;
+        this.enterLeaf(leaf, index);
+    }
+
+    /**
+     * moves to the next entry of the range
+     * @return true if there is one (-> getKey, getValue), false if the range is exhausted
+     */
+    public boolean next(){
+        while (this.leaf != null && this.index >= this.leafEnd){
+            this.nextLeaf();
+        }
+        if (this.leaf == null){
+            this.key = null;
+            this.value = null;
+            return false;
+        }
+        this.key = this.leaf.getKey(this.index);
+        this.value = this.leaf.getValue(this.index);
+        this.index++;
+        return true;
+    }
+
+    /**
+     * @return the key of the entry the last next() moved to
+     */
+    public Key getKey(){
+        return key;
+    }
+
+    /**
+     * @return the value of the entry the last next() moved to
+     */
+    public Value getValue(){
+        return value;
+    }
+
+    /**
+     * Copies the next (up to) length entries of the range into the given arrays, a whole LeafNode at a time.
+     * Can be mixed with next(); getKey and getValue are not changed by drain.
+     * @param values null, if only the keys are needed
+     * @return the number of copied entries, less than length only if the range is exhausted
+     */
+    public int drain(Key[] keys, Value[] values, int offset, int length){
+        int copied = 0;
+        while (copied < length && this.leaf != null){
+            int count = Math.min(length - copied, this.leafEnd - this.index);
+            if (count > 0){
+                this.leaf.copyEntries(this.index, keys, values, offset + copied, count);
+                this.index += count;
+                copied += count;
+            } else {
+                this.nextLeaf();
+            }
+        }
+        return copied;
+    }
+
+    private void nextLeaf(){
+        if (this.leafEnd < this.leaf.numKeys){//the range ended inside this leaf
+            this.leaf = null;
+        } else {
+            this.enterLeaf(this.leaf.getRightSibling(), 0);
+        }
+    }
+
+    private void enterLeaf(LeafNode<Key, Value, M> leaf, int index){
+        this.leaf = leaf;
+        this.index = index;
+        if (leaf != null){
+            this.leafEnd = this.end == null ? leaf.numKeys : Math.max(index, leaf.searchNextBest(this.end));
+        }
+    }
+}
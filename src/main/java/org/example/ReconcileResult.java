@@ -0,0 +1,52 @@
+package org.example;
+
+import java.util.ArrayList;
+
+/**
+ * The outcome of {@link Reconciler#reconcile(Transport)}: the symmetric difference of both key sets
+ * plus the costs of the protocol (to tune the split factor and threshold)
+ */
+public class ReconcileResult <Key>{
+    ArrayList<Key> missingLocally = new ArrayList<>();//keys only the remote replica has
+    ArrayList<Key> missingRemotely = new ArrayList<>();//keys only the local replica has
+    int rounds;//number of exchanged messages
+    long bytesSent;
+    long bytesReceived;
+    long fingerprints;//fingerprints computed on the local side
+    long keysReceived;//raw keys the remote replica sent for small ranges
+
+    public ArrayList<Key> getMissingLocally(){
+        return missingLocally;
+    }
+
+    public ArrayList<Key> getMissingRemotely(){
+        return missingRemotely;
+    }
+
+    public int getRounds(){
+        return rounds;
+    }
+
+    public long getBytesSent(){
+        return bytesSent;
+    }
+
+    public long getBytesReceived(){
+        return bytesReceived;
+    }
+
+    public long getFingerprints(){
+        return fingerprints;
+    }
+
+    public long getKeysReceived(){
+        return keysReceived;
+    }
+
+    @Override
+    public String toString(){
+        return "missingLocally: " + missingLocally.size() + ", missingRemotely: " + missingRemotely.size()
+                + ", rounds: " + rounds + ", bytes sent: " + bytesSent + ", bytes received: " + bytesReceived
+                + ", fingerprints: " + fingerprints + ", keys received: " + keysReceived;
+    }
+}
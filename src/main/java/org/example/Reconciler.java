@@ -0,0 +1,228 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Range-based set reconciliation of the keys of two trees (one per replica).
+ * The initiator sends the fingerprints (count and hash of the {@link ExampleMonoid}) of its open ranges, starting with
+ * the whole key space. For every range the responder answers
+ * - EQUAL, if its fingerprint is the same -> the range is done
+ * - KEYS, if it has at most threshold keys in the range -> the initiator compares them with its own keys
+ * - SPLIT, otherwise: it cuts the range into splitFactor ranges with the same number of keys (splitRange) and sends
+ *   their fingerprints, the initiator computes its own fingerprints of these ranges in one pass and keeps the ranges
+ *   that differ open for the next round.
+ * Both replicas use the same Reconciler class, one calls reconcile, the other one answers in respond.
+ * (Two different key sets with the same count and xor hash look equal, so the hash of the keys should spread well)
+ */
+public class Reconciler <Key extends Comparable<Key>, Value>{
+    private static final byte EQUAL = 0;
+    private static final byte KEYS = 1;
+    private static final byte SPLIT = 2;
+
+    private final Tree<Key, Value, ExampleMonoid<Key>> tree;
+    private final Codec<Key> codec;
+    private final int splitFactor;
+    private final int threshold;
+    private long fingerprints;//fingerprints computed by respond
+
+    /**
+     * @param splitFactor number of ranges a differing range is split into (at least 2)
+     * @param threshold   ranges with at most threshold keys are sent as raw keys instead of being split (at least 1)
+     */
+    public Reconciler(Tree<Key, Value, ExampleMonoid<Key>> tree, Codec<Key> codec, int splitFactor, int threshold){
+        if (splitFactor < 2){
+            throw new IllegalArgumentException("splitFactor has to be at least 2, was " + splitFactor);
+        }
+        if (threshold < 1){
+            throw new IllegalArgumentException("threshold has to be at least 1, was " + threshold);
+        }
+        this.tree = tree;
+        this.codec = codec;
+        this.splitFactor = splitFactor;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Runs the protocol until every range is resolved
+     * @param transport connection to the Reconciler of the other replica
+     * @return the keys that only one of the replicas has (sorted) and the costs of the protocol
+     */
+    public ReconcileResult<Key> reconcile(Transport transport) throws IOException {
+        ReconcileResult<Key> result = new ReconcileResult<>();
+        ArrayList<Range<Key>> open = new ArrayList<>();
+        open.add(new Range<>(null, null, this.tree.fingerprint(null, null)));
+        result.fingerprints++;
+        while (!open.isEmpty()){
+            //1: send the local fingerprints of all open ranges
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(open.size());
+            for (Range<Key> range : open){
+                writeBound(out, range.from);
+                writeBound(out, range.to);
+                out.writeInt(range.fingerprint.count);
+                out.writeLong(range.fingerprint.hash);
+            }
+            out.flush();
+            byte[] request = bytes.toByteArray();
+            byte[] response = transport.exchange(request);
+            result.rounds++;
+            result.bytesSent += request.length;
+            result.bytesReceived += response.length;
+
+            //2: resolve the ranges with the answers of the remote replica
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(response));
+            ArrayList<Range<Key>> next = new ArrayList<>();
+            for (Range<Key> range : open){
+                byte tag = in.readByte();
+                if (tag == KEYS){
+                    int size = in.readInt();
+                    ArrayList<Key> remoteKeys = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++){
+                        remoteKeys.add(this.codec.read(in));
+                    }
+                    result.keysReceived += size;
+                    compareKeys(range, remoteKeys, result);
+                } else if (tag == SPLIT){
+                    int parts = in.readInt();
+                    ArrayList<Key> boundaries = new ArrayList<>(parts + 1);
+                    for (int i = 0; i <= parts; i++){
+                        boundaries.add(readBound(in));
+                    }
+                    ArrayList<ExampleMonoid<Key>> local = this.tree.fingerprints(boundaries);
+                    result.fingerprints += parts;
+                    for (int i = 0; i < parts; i++){
+                        int count = in.readInt();
+                        long hash = in.readLong();
+                        ExampleMonoid<Key> fingerprint = local.get(i);
+                        if (fingerprint.count != count || fingerprint.hash != hash){
+                            next.add(new Range<>(boundaries.get(i), boundaries.get(i + 1), fingerprint));
+                        }
+                    }
+                } else if (tag != EQUAL){
+                    throw new IOException("unknown answer " + tag);
+                }
+            }
+            open = next;
+        }
+        //ranges are resolved in different rounds -> sort the differences
+        Collections.sort(result.missingLocally);
+        Collections.sort(result.missingRemotely);
+        return result;
+    }
+
+    /**
+     * Answers a message of the reconcile method of the other replica
+     * @param request the fingerprints of the open ranges of the other replica
+     * @return for every range: EQUAL, the raw keys or the fingerprints of its subranges
+     */
+    public byte[] respond(byte[] request) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int ranges = in.readInt();
+        for (int r = 0; r < ranges; r++){
+            Key from = readBound(in);
+            Key to = readBound(in);
+            int count = in.readInt();
+            long hash = in.readLong();
+            ExampleMonoid<Key> fingerprint = this.tree.fingerprint(from, to);
+            this.fingerprints++;
+            if (fingerprint.count == count && fingerprint.hash == hash){
+                out.writeByte(EQUAL);
+            } else if (fingerprint.count <= this.threshold){
+                out.writeByte(KEYS);
+                out.writeInt(fingerprint.count);
+                RangeCursor<Key, Value, ExampleMonoid<Key>> cursor = this.tree.rangeCursor(from, to);
+                while (cursor.next()){
+                    this.codec.write(out, cursor.getKey());
+                }
+            } else {
+                //more than threshold >= 1 keys -> splitRange returns at least 2 ranges, so every range gets smaller
+                ArrayList<Key> boundaries = this.tree.splitRange(from, to, this.splitFactor);
+                ArrayList<ExampleMonoid<Key>> parts = this.tree.fingerprints(boundaries);
+                this.fingerprints += parts.size();
+                out.writeByte(SPLIT);
+                out.writeInt(parts.size());
+                for (Key boundary : boundaries){
+                    writeBound(out, boundary);
+                }
+                for (ExampleMonoid<Key> part : parts){
+                    out.writeInt(part.count);
+                    out.writeLong(part.hash);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the number of fingerprints respond computed so far
+     */
+    public long getFingerprints(){
+        return fingerprints;
+    }
+
+    /**
+     * merges the sorted remote keys of range with the local keys of range and records the keys only one side has
+     */
+    private void compareKeys(Range<Key> range, ArrayList<Key> remoteKeys, ReconcileResult<Key> result){
+        RangeCursor<Key, Value, ExampleMonoid<Key>> cursor = this.tree.rangeCursor(range.from, range.to);
+        int i = 0;
+        boolean hasLocal = cursor.next();
+        while (hasLocal || i < remoteKeys.size()){
+            int compare;
+            if (!hasLocal){
+                compare = 1;
+            } else if (i == remoteKeys.size()){
+                compare = -1;
+            } else {
+                compare = cursor.getKey().compareTo(remoteKeys.get(i));
+            }
+            if (compare < 0){
+                result.missingRemotely.add(cursor.getKey());
+                hasLocal = cursor.next();
+            } else if (compare > 0){
+                result.missingLocally.add(remoteKeys.get(i));
+                i++;
+            } else {
+                hasLocal = cursor.next();
+                i++;
+            }
+        }
+    }
+
+    //a bound is a flag (null = unbounded) plus the key
+    private void writeBound(DataOutputStream out, Key bound) throws IOException {
+        out.writeBoolean(bound != null);
+        if (bound != null){
+            this.codec.write(out, bound);
+        }
+    }
+
+    private Key readBound(DataInputStream in) throws IOException {
+        return in.readBoolean() ? this.codec.read(in) : null;
+    }
+
+    /**
+     * a range [from, to) that is not resolved yet together with its local fingerprint
+     */
+    private static class Range <Key>{
+        final Key from;
+        final Key to;
+        final ExampleMonoid<?> fingerprint;
+
+        Range(Key from, Key to, ExampleMonoid<?> fingerprint){
+            this.from = from;
+            this.to = to;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Splits the key space into ranges and keeps every range in its own {@link Tree} (shard) with its own lock, so
+ * writers of different shards do not wait for each other. Shard i holds the keys in [boundaries[i-1], boundaries[i]),
+ * the first shard is unbounded to the left, the last one to the right.
+ * Range fingerprints combine the fingerprints of the overlapping shards from left to right with the monoid.
+ * rebalance moves a boundary, if one shard gets much more writes than the others.
+ * The boundaries are an immutable list in a volatile field: an operation routes with the list it read, takes the
+ * shard lock and retries, if rebalance published a new list in the meantime. So routing needs no shared lock.
+ */
+public class ShardedTree <Key extends Comparable<Key>, Value, M>{
+    private final Monoid<M, Key> monoid;
+    private final ArrayList<Tree<Key, Value, M>> shards;
+    private volatile ArrayList<Key> boundaries;//boundaries.get(i) = smallest key of shard i+1, never changed after publication
+    private final ReentrantReadWriteLock[] locks;//one per shard
+    private final Object rebalancing = new Object();//only one rebalance at a time
+    private final LongAdder[] writes;//writes per shard since the last rebalance, LongAdder -> no false sharing between shards
+
+    /**
+     * @param boundaries strictly increasing keys that separate the shards -> boundaries.size() + 1 shards
+     */
+    public ShardedTree(Monoid<M, Key> monoid, int degree, List<Key> boundaries){
+        for (int i = 1; i < boundaries.size(); i++){
+            if (boundaries.get(i - 1).compareTo(boundaries.get(i)) >= 0){
+                throw new IllegalArgumentException("boundaries have to be strictly increasing, but " + boundaries.get(i) + " follows " + boundaries.get(i - 1));
+            }
+        }
+        this.monoid = monoid;
+        this.boundaries = new ArrayList<>(boundaries);
+        this.shards = new ArrayList<>(boundaries.size() + 1);
+        this.locks = new ReentrantReadWriteLock[boundaries.size() + 1];
+        this.writes = new LongAdder[boundaries.size() + 1];
+        for (int i = 0; i <= boundaries.size(); i++){
+            this.shards.add(new Tree<Key, Value, M>(monoid, degree));
+            this.locks[i] = new ReentrantReadWriteLock();
+            this.writes[i] = new LongAdder();
+        }
+    }
+
+    public int getNumberOfShards(){
+        return this.shards.size();
+    }
+
+    /**
+     * @return the current boundaries between the shards (a copy)
+     */
+    public ArrayList<Key> getBoundaries(){
+        return new ArrayList<>(this.boundaries);
+    }
+
+    /**
+     * @return index of the shard whose range contains key (= number of boundaries <= key)
+     */
+    private static <Key extends Comparable<Key>> int shardIndex(ArrayList<Key> boundaries, Key key){
+        int low = 0;
+        int high = boundaries.size();
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (boundaries.get(mid).compareTo(key) <= 0){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * takes the write lock of the shard that holds key and returns its index. The boundaries are re-checked under
+     * the lock, rebalance only publishes new ones while it holds the locks of the shards it changes.
+     */
+    private int lockShard(Key key){
+        while (true){
+            ArrayList<Key> boundaries = this.boundaries;
+            int shard = shardIndex(boundaries, key);
+            this.locks[shard].writeLock().lock();
+            if (boundaries == this.boundaries){
+                return shard;
+            }
+            this.locks[shard].writeLock().unlock();
+        }
+    }
+
+    public void insert(Key key, Value value){
+        int shard = lockShard(key);
+        try {
+            this.shards.get(shard).insert(key, value);
+        } finally {
+            this.locks[shard].writeLock().unlock();
+        }
+        this.writes[shard].increment();
+    }
+
+    public void delete(Key key){
+        int shard = lockShard(key);
+        try {
+            this.shards.get(shard).delete(key);
+        } finally {
+            this.locks[shard].writeLock().unlock();
+        }
+        this.writes[shard].increment();
+    }
+
+    public Value searchValue(Key key){
+        while (true){
+            ArrayList<Key> boundaries = this.boundaries;
+            int shard = shardIndex(boundaries, key);
+            this.locks[shard].readLock().lock();
+            try {
+                if (boundaries == this.boundaries){
+                    return this.shards.get(shard).searchValue(key);
+                }
+            } finally {
+                this.locks[shard].readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) over all shards that overlap it. The read locks of these shards
+     * are held together (taken from left to right), so the result belongs to one state of the shards.
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     */
+    public M fingerprint(Key x, Key y){
+        if (x != null && y != null && x.compareTo(y) >= 0){
+            return this.monoid.identity();
+        }
+        while (true){
+            ArrayList<Key> boundaries = this.boundaries;
+            int first = x == null ? 0 : shardIndex(boundaries, x);
+            int last = y == null ? this.shards.size() - 1 : shardIndex(boundaries, y);
+            for (int i = first; i <= last; i++){
+                this.locks[i].readLock().lock();
+            }
+            try {
+                if (boundaries == this.boundaries){
+                    M acc = this.monoid.identity();
+                    for (int i = first; i <= last; i++){
+                        acc = this.monoid.combine(acc, this.shards.get(i).fingerprint(x, y));
+                    }
+                    return acc;
+                }
+            } finally {
+                for (int i = first; i <= last; i++){
+                    this.locks[i].readLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of writes every shard got since the last rebalance
+     */
+    public long[] getShardLoads(){
+        long[] loads = new long[this.writes.length];
+        for (int i = 0; i < loads.length; i++){
+            loads[i] = this.writes[i].sum();
+        }
+        return loads;
+    }
+
+    /**
+     * If the hottest shard got more than hotFactor times the average number of writes since the last rebalance,
+     * the half of its keys next to its less loaded neighbour is moved to that neighbour (with insertAll/deleteAll)
+     * and the boundary between them is moved to the median key of the hot shard (needs a {@link SizedMonoid}).
+     * Blocks the operations on these two shards while it runs, the others only retry their routing once.
+     * Resets the write counters.
+     * @return true, if a boundary was moved
+     */
+    public boolean rebalance(double hotFactor){
+        synchronized (this.rebalancing){
+            long[] loads = new long[this.writes.length];
+            long total = 0;
+            int hot = 0;
+            for (int i = 0; i < loads.length; i++){
+                loads[i] = this.writes[i].sumThenReset();
+                total += loads[i];
+                if (loads[i] > loads[hot]){
+                    hot = i;
+                }
+            }
+            double average = (double) total / this.shards.size();
+            if (this.shards.size() < 2 || loads[hot] <= hotFactor * average){
+                return false;
+            }
+            boolean toLeft = hot == this.shards.size() - 1 || (hot > 0 && loads[hot - 1] <= loads[hot + 1]);
+            int left = toLeft ? hot - 1 : hot;//the shards left and left + 1 change, locked in index order
+            this.locks[left].writeLock().lock();
+            this.locks[left + 1].writeLock().lock();
+            try {
+                Tree<Key, Value, M> source = this.shards.get(hot);
+                if (source.size() <= 1){
+                    return false;
+                }
+                Key median = source.select(source.size()/2);
+                if (toLeft){//the keys in [old boundary, median) move into the left neighbour
+                    moveKeys(source, this.shards.get(left), null, median);
+                } else {//the keys in [median, old boundary) move into the right neighbour
+                    moveKeys(source, this.shards.get(left + 1), median, null);
+                }
+                ArrayList<Key> boundaries = new ArrayList<>(this.boundaries);
+                boundaries.set(left, median);
+                this.boundaries = boundaries;
+                return true;
+            } finally {
+                this.locks[left + 1].writeLock().unlock();
+                this.locks[left].writeLock().unlock();
+            }
+        }
+    }
+
+    private void moveKeys(Tree<Key, Value, M> source, Tree<Key, Value, M> target, Key x, Key y){
+        ArrayList<Pair<Key, Value>> entries = new ArrayList<>();
+        ArrayList<Key> keys = new ArrayList<>();
+        RangeCursor<Key, Value, M> cursor = source.rangeCursor(x, y);
+        while (cursor.next()){
+            entries.add(new Pair<>(cursor.getKey(), cursor.getValue()));
+            keys.add(cursor.getKey());
+        }
+        target.insertAll(entries);
+        source.deleteAll(keys);
+    }
+}
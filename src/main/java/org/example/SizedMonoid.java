@@ -0,0 +1,14 @@
+package org.example;
+
+/**
+ * A {@link Monoid} whose elements know how many keys were combined into them (e.g. a count).
+ * The tree uses these sizes to navigate by position: rank, select and splitRange.
+ * @param <M> the element type this Monoid is formed over
+ */
+public interface SizedMonoid<M, U> extends Monoid<M, U>{
+    /**
+     * @param x: a Monoid
+     * @return: the number of keys that were mapped and combined into x (0 for the identity)
+     */
+    int size(M x);
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Reference engine for static data: the keys in a sorted array plus the prefix XOR of their hashes
+ * (prefixHashes[i] = hash of keys[0..i)), so a fingerprint is two binary searches and one XOR, O(log n) independent of
+ * the range width. Gives the same result as a {@link Tree} with an {@link ExampleMonoid}, but every write would rebuild
+ * the arrays in O(n).
+ */
+public class SortedArrayBaseline <Key extends Comparable<Key>>{
+    private final Key[] keys;
+    private final long[] prefixHashes;
+
+    /**
+     * @param sortedKeys keys in strictly increasing order
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SortedArrayBaseline(Iterator<Key> sortedKeys, int size){
+        this.keys = (Key[]) new Comparable[size];
+        this.prefixHashes = new long[size + 1];
+        for (int i = 0; i < size; i++){
+            Key key = sortedKeys.next();
+            if (i > 0 && this.keys[i - 1].compareTo(key) >= 0){
+                throw new IllegalArgumentException("keys have to be strictly increasing, but " + key + " follows " + this.keys[i - 1]);
+            }
+            this.keys[i] = key;
+            this.prefixHashes[i + 1] = this.prefixHashes[i] ^ key.hashCode();//same hash as ExampleMonoid.mapIntoMonoid
+        }
+    }
+
+    public int size(){
+        return this.keys.length;
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) from the prefix hashes
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     * @return the monoid of the range, identity if the range is empty
+     */
+    public ExampleMonoid<Key> fingerprint(Key x, Key y){
+        int from = x == null ? 0 : this.lowerBound(x);
+        int to = y == null ? this.keys.length : this.lowerBound(y);
+        if (from >= to){
+            return new ExampleMonoid<>(0, 0, null);
+        }
+        return new ExampleMonoid<>(to - from, this.prefixHashes[to] ^ this.prefixHashes[from], this.keys[to - 1]);
+    }
+
+    /**
+     * @return index of the first key >= key (keys.length if there is none)
+     */
+    private int lowerBound(Key key){
+        int index = Arrays.binarySearch(this.keys, key);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * Carries the messages of a {@link Reconciler} to the replica on the other side and returns its answer
+ * (e.g. over a socket, or in process with {@link LoopbackTransport})
+ */
+public interface Transport {
+    /**
+     * sends request to the other replica and waits for its response
+     */
+    byte[] exchange(byte[] request) throws IOException;
+}
@@ -1,17 +1,190 @@
 package org.example;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 public class Tree <Key extends Comparable<Key>, Value, M>{
-    static int degree = 4;//maximum degree = every Node has at most degree Keys
+    public static final int DEFAULT_DEGREE = 4;
+    protected final int degree;//maximum degree = every Node has at most degree Keys
     protected Node<Key, Value, M> root;
     protected Monoid<M, Key> monoid;
     /**
      * Constructor
      */
     public Tree(Monoid<M, Key> monoid){
+        this(monoid, DEFAULT_DEGREE);
+    }
+
+    /**
+     * Constructor
+     * @param degree the fan-out of this tree: every node holds at most degree keys (e.g. 64 - 512 for big trees)
+     */
+    public Tree(Monoid<M, Key> monoid, int degree){
+        if (degree < 3){
+            throw new IllegalArgumentException("degree has to be at least 3, was " + degree);
+        }
+        this.degree = degree;
         this.monoid = monoid;
-        this.root = new LeafNode<Key, Value, M>(monoid);
+        this.root = new LeafNode<Key, Value, M>(monoid, degree);
+    }
+
+    /**
+     * Bulk loading constructor: builds the tree bottom-up from key-value pairs that are sorted by key.
+     * The LeafNodes are packed with fillFactor * degree keys and linked as siblings, then every level of InnerNodes
+     * is built on top of the previous one. Every label is calculated exactly once.
+     * @param sortedEntries key-value pairs with strictly increasing keys (e.g. stream.iterator())
+     * @param fillFactor share of the maximum number of entries every node gets (0 < fillFactor <= 1),
+     *                   nodes never get less than the minimum number of entries
+     */
+    public Tree(Monoid<M, Key> monoid, int degree, Iterator<Pair<Key, Value>> sortedEntries, double fillFactor){
+        this(monoid, degree);
+        if (!(fillFactor > 0 && fillFactor <= 1)){
+            throw new IllegalArgumentException("fillFactor has to be in (0, 1], was " + fillFactor);
+        }
+        //1: fill the LeafNodes from left to right
+        int leafFill = Math.min(degree, Math.max(Math.max(1, degree/2), (int) Math.round(fillFactor * degree)));
+        ArrayList<Node<Key, Value, M>> level = new ArrayList<>();
+        LeafNode<Key, Value, M> leaf = null;
+        Key previous = null;
+        while (sortedEntries.hasNext()){
+            Pair<Key, Value> entry = sortedEntries.next();
+            Key key = entry.getFirst();
+            if (previous != null && previous.compareTo(key) >= 0){
+                throw new IllegalArgumentException("keys have to be strictly increasing, but " + key + " follows " + previous);
+            }
+            if (leaf == null || leaf.numKeys == leafFill){
+                LeafNode<Key, Value, M> newLeaf = new LeafNode<Key, Value, M>(monoid, degree);
+                if (leaf != null){
+                    leaf.setRightSibling(newLeaf);
+                }
+                leaf = newLeaf;
+                level.add(leaf);
+            }
+            leaf.addKeyValueIndex(leaf.numKeys, key, entry.getSecond());
+            previous = key;
+        }
+        if (level.isEmpty()){
+            return;//no entries -> keep the empty root
+        }
+        //the last LeafNode may have an underflow: fuse it with its left sibling or split the entries of both evenly
+        if (level.size() > 1 && leaf.numKeys < degree/2){
+            LeafNode<Key, Value, M> left = (LeafNode<Key, Value, M>) level.get(level.size()-2);
+            int total = left.numKeys + leaf.numKeys;
+            if (total <= degree){
+                while (leaf.numKeys > 0){
+                    left.addKeyValueIndex(left.numKeys, leaf.keys[0], leaf.getValue(0));
+                    leaf.removeKeyValueIndex(0);
+                }
+                left.setRightSibling(null);
+                level.remove(level.size()-1);
+            } else {
+                while (leaf.numKeys < total/2){
+                    leaf.addKeyValueIndex(0, left.keys[left.numKeys-1], left.getValue(left.numKeys-1));
+                    left.removeKeyValueIndex(left.numKeys-1);
+                }
+            }
+        }
+        ArrayList<Key> firstKeys = new ArrayList<>(level.size());//smallest key in the subtree of every node of level
+        for (Node<Key, Value, M> node : level){
+            node.calculateLabel();
+            firstKeys.add(node.keys[0]);
+        }
+
+        //2: build the InnerNodes on top of the nodes of the level below until only the root is left
+        int minChildren = degree/2 + 1;
+        int innerFill = Math.min(degree + 1, Math.max(minChildren, (int) Math.round(fillFactor * (degree + 1))));
+        while (level.size() > 1){
+            ArrayList<Node<Key, Value, M>> parents = new ArrayList<>();
+            ArrayList<Key> parentFirstKeys = new ArrayList<>();
+            int index = 0;
+            for (int size : groupSizes(level.size(), minChildren, degree + 1, innerFill)){
+                InnerNode<Key, Value, M> inner = new InnerNode<Key, Value, M>(monoid, degree);
+                parentFirstKeys.add(firstKeys.get(index));
+                for (int i = 0; i < size; i++, index++){
+                    Node<Key, Value, M> child = level.get(index);
+                    if (i > 0){
+                        inner.addKey(firstKeys.get(index));//the key in front of a child is the smallest key of that child
+                    }
+                    child.parent = inner;
+                    child.indexInParent = i;
+                    inner.addChild(child);
+                }
+                inner.calculateLabel();
+                parents.add(inner);
+            }
+            level = parents;
+            firstKeys = parentFirstKeys;
+        }
+        this.root = level.get(0);
+    }
+
+    /**
+     * Splits count nodes into groups of target nodes, the last group is fused with or evened out with
+     * the one before it, if it would be smaller than min
+     * @return the size of every group from left to right
+     */
+    private static int[] groupSizes(int count, int min, int max, int target){
+        int groups = count / target;
+        int rest = count % target;
+        if (groups == 0){
+            return new int[]{count};//only one group -> this will be the root, which has no minimum
+        }
+        if (rest == 0){
+            int[] sizes = new int[groups];
+            Arrays.fill(sizes, target);
+            return sizes;
+        }
+        if (rest >= min){
+            int[] sizes = new int[groups + 1];
+            Arrays.fill(sizes, target);
+            sizes[groups] = rest;
+            return sizes;
+        }
+        if (target + rest <= max){
+            int[] sizes = new int[groups];
+            Arrays.fill(sizes, target);
+            sizes[groups - 1] = target + rest;
+            return sizes;
+        }
+        int[] sizes = new int[groups + 1];
+        Arrays.fill(sizes, target);
+        sizes[groups - 1] = target + rest - (target + rest)/2;
+        sizes[groups] = (target + rest)/2;
+        return sizes;
+    }
+
+    /**
+     * Lets every node keep prefix aggregates of its child labels / key images from now on (also nodes created later).
+     * Then aggregating a part of a node in computeFingerprint costs a binary search plus one lookup (or the uncombine
+     * of two prefixes for an {@link InvertibleMonoid}), so the fingerprint cost depends on the height and not on the
+     * degree. In exchange every label update recalculates the whole node (no incremental updates) and the nodes need
+     * two more arrays of monoids.
+     */
+    public void enablePrefixAggregates(){
+        if (this.root.prefixLabels == null){
+            enablePrefixLabels(this.root);
+        }
+    }
+
+    private void enablePrefixLabels(Node<Key, Value, M> node){
+        if (node.getNodeType() == NodeType.InnerNode){
+            InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+            for (int i = 0; i < inner.getSizeChildren(); i++){
+                enablePrefixLabels(inner.getChild(i));
+            }
+        }
+        node.enablePrefixLabels();
+        node.calculateLabel();
+    }
+
+    public int getDegree(){
+        return this.degree;
     }
 
     /**
@@ -39,7 +212,7 @@ public class Tree <Key extends Comparable<Key>, Value, M>{
         Node<Key, Value, M> node = this.root;
         while (node.getNodeType() != NodeType.LeafNode) {
             //iterate over the children that contain range including key
-            if (node.keys.contains(key)){
+            if (node.indexOfKey(key) >= 0){
                 return (InnerNode<Key, Value, M>)node;
             }
             node = ((InnerNode<Key, Value, M>) node).getChild(node.searchInNode(key));
@@ -66,27 +239,42 @@ public class Tree <Key extends Comparable<Key>, Value, M>{
     public void insert(Key key, Value value){
         LeafNode<Key, Value, M> leaf = shouldContainKey(key);//return leaf that should contain our key
         if (leaf == null){
-            this.root = new LeafNode<Key, Value, M>(this.monoid, key, value);
+            this.root = new LeafNode<Key, Value, M>(this.monoid, this.degree, key, value);
             return;
         }
         //search index of the first keys-entry that is bigger than key
         int i = leaf.searchNextBest(key);
-        if (i < leaf.keys.size() && leaf.keys.get(i).equals(key)){//key already exists
+        if (i < leaf.numKeys && leaf.keys[i].equals(key)){//key already exists
             leaf.setValue(i, value);//replace the old value with the new one
             return;
         }
 
+        boolean overflow = insertIntoLeaf(leaf, i, key, value);
+        //update the parent labels
+        if (!overflow && this.monoid instanceof InvertibleMonoid && leaf.prefixLabels == null){
+            leaf.addToLabels(this.monoid.mapIntoMonoid(key));//O(height) instead of O(degree * height)
+            return;
+        }
+        leaf.calculateLabel();
+        leaf.recalculateParentLabels();
+    }
+
+    /**
+     * Inserts the new key at index i of leaf and splits the nodes that have an overflow,
+     * but does not update the labels of leaf and its parents
+     * @return true, if leaf had an overflow
+     */
+    private boolean insertIntoLeaf(LeafNode<Key, Value, M> leaf, int i, Key key, Value value){
         leaf.addKeyValueIndex(i, key, value);
 
-        if (leaf.getSizeKeys() > degree){//we have Overflow
+        if (leaf.getSizeKeys() > this.degree){//we have Overflow
             Node<Key, Value, M> node = leaf.overflow();
             if (node != null){ //was the last node with an overflow the original root?
                 this.root = node;
             }
+            return true;
         }
-        //update the parent labels
-        leaf.calculateLabel();
-        leaf.recalculateParentLabels();
+        return false;
     }
 
     /**
@@ -100,37 +288,148 @@ public class Tree <Key extends Comparable<Key>, Value, M>{
         if (index < 0){
             return;//key does not exist
         }
+        if (!deleteFromLeaf(leaf, index, key)){
+            if (this.monoid instanceof InvertibleMonoid && leaf.prefixLabels == null){
+                leaf.removeFromLabels(this.monoid.mapIntoMonoid(key));//no underflow -> only key is missing in the labels
+                return;
+            }
+            leaf.calculateLabel();
+        }
+        leaf.recalculateParentLabels();
+    }
+
+    /**
+     * Removes the entry at index of leaf, handles an underflow and Case X, but does not update the labels of the parents
+     * @return true, if leaf had an underflow (the labels of the changed nodes are calculated in the Inner/Leaf-Node functions then),
+     *         otherwise the label of leaf still has to be calculated
+     */
+    private boolean deleteFromLeaf(LeafNode<Key, Value, M> leaf, int index, Key key){
         InnerNode<Key, Value, M> tmp = null;
-        if (leaf.keys.get(0) == key){
+        if (index == 0){
             //if the deleted key is the first Key of a leaf node, then that Key can also be found in an inner node
             tmp = searchInnerKeyNode(key);
         }
-        leaf.removeKeyIndex(index);
-        leaf.removeValueIndex(index);
+        leaf.removeKeyValueIndex(index);
         if (leaf.checkUnderflow()){
             Node<Key, Value, M> node = leaf.underflow(tmp, key);
             if (node != null) {
                 this.root = node;
             }
             //leaf.calculateLabel(); //is being done in the Inner/Leaf-Node functions itself
-            leaf.recalculateParentLabels();
-            return;
+            return true;
         } else {//if we do not have an underflow, but the deleted Key is in parent
             if (tmp != null && tmp == leaf.parent){
-                tmp.keys.set(tmp.keys.indexOf(key), leaf.keys.get(0));
+                tmp.setKey(tmp.indexOfKey(key), leaf.keys[0]);
             }
         }
         //Case X: if a higher Node than parent contained the key, then change that key to the new key
         if (tmp != leaf.parent && tmp != null){
-            tmp.keys.set(tmp.keys.indexOf(key), leaf.keys.get(0));
+            tmp.setKey(tmp.indexOfKey(key), leaf.keys[0]);
         }
-        leaf.calculateLabel();
-        leaf.recalculateParentLabels();
+        return false;
+    }
+
+    /**
+     * Inserts all key-value pairs as one batch: the entries are sorted by key and all entries that belong into the
+     * same LeafNode are inserted without descending from the root again. Instead of recalculating all parent labels
+     * after every entry, the changed nodes are marked dirty and every dirty label is recalculated once at the end.
+     * If a key occurs more than once, the last value wins (like calling insert for every entry in order).
+     */
+    public void insertAll(List<Pair<Key, Value>> entries){
+        ArrayList<Pair<Key, Value>> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> a.getFirst().compareTo(b.getFirst()));//stable -> equal keys keep their order
+        int next = 0;
+        while (next < sorted.size()){
+            Key key = sorted.get(next).getFirst();
+            Pair<LeafNode<Key, Value, M>, Key> target = leafWithUpperBound(key);
+            LeafNode<Key, Value, M> leaf = target.getFirst();
+            Key upperBound = target.getSecond();
+            boolean overflow = false;
+            //insert every following key into the same leaf, until a key belongs into the next leaf or the leaf was split
+            do {
+                Pair<Key, Value> entry = sorted.get(next++);
+                int i = leaf.searchNextBest(entry.getFirst());
+                if (i < leaf.numKeys && leaf.keys[i].equals(entry.getFirst())){//key already exists
+                    leaf.setValue(i, entry.getSecond());
+                } else {
+                    overflow = insertIntoLeaf(leaf, i, entry.getFirst(), entry.getSecond());
+                }
+            } while (!overflow && next < sorted.size() && (upperBound == null || sorted.get(next).getFirst().compareTo(upperBound) < 0));
+            leaf.markDirty();
+        }
+        refreshLabels(this.root);
+    }
+
+    /**
+     * Deletes all keys as one batch: works like insertAll, the labels are recalculated once at the end.
+     * Keys that are not in the tree are ignored.
+     */
+    public void deleteAll(Collection<Key> keys){
+        ArrayList<Key> sorted = new ArrayList<>(keys);
+        Collections.sort(sorted);
+        int next = 0;
+        while (next < sorted.size()){
+            Pair<LeafNode<Key, Value, M>, Key> target = leafWithUpperBound(sorted.get(next));
+            LeafNode<Key, Value, M> leaf = target.getFirst();
+            Key upperBound = target.getSecond();
+            boolean restructured = false;
+            do {
+                Key key = sorted.get(next++);
+                int index = leaf.searchInNode(key);
+                if (index < 0){
+                    continue;//key does not exist
+                }
+                if (index == 0 || (leaf.parent != null && leaf.numKeys - 1 < this.degree/2)){
+                    //the key may be in an InnerNode or the leaf gets an underflow -> the tree may change, descend again afterwards
+                    if (!deleteFromLeaf(leaf, index, key)){
+                        leaf.calculateLabel();
+                    }
+                    restructured = true;
+                } else {
+                    leaf.removeKeyValueIndex(index);
+                }
+            } while (!restructured && next < sorted.size() && (upperBound == null || sorted.get(next).compareTo(upperBound) < 0));
+            leaf.markDirty();
+        }
+        refreshLabels(this.root);
+    }
+
+    /**
+     * Descends like shouldContainKey and also returns the smallest key of the InnerNodes that is right of the leaf:
+     * exactly the keys smaller than that bound belong into the leaf (null = no bound)
+     */
+    private Pair<LeafNode<Key, Value, M>, Key> leafWithUpperBound(Key key){
+        Node<Key, Value, M> node = this.root;
+        Key upperBound = null;
+        while (node.getNodeType() == NodeType.InnerNode) {
+            int index = node.searchInNode(key);
+            if (index < node.numKeys){
+                upperBound = node.keys[index];//the deeper the node, the smaller the bound
+            }
+            node = ((InnerNode<Key, Value, M>) node).getChild(index);
+        }
+        return new Pair<>((LeafNode<Key, Value, M>) node, upperBound);
+    }
+
+    /**
+     * Recalculates the labels of node and of all dirty nodes in its subtree bottom-up and clears their dirty flag
+     */
+    private void refreshLabels(Node<Key, Value, M> node){
+        if (node.getNodeType() == NodeType.InnerNode){
+            InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+            for (int i = 0; i < inner.getSizeChildren(); i++){
+                if (inner.getChild(i).dirty){
+                    refreshLabels(inner.getChild(i));
+                }
+            }
+        }
+        node.calculateLabel();
+        node.dirty = false;
     }
 
     /**
      * computes the fingerprint of the range in between x and y (including x and y) according to the Monoid used
-     * @param y     end point of range (y > x) (exclusive)
+     * @param y     end point of range (y > x) (exclusive), null if the range is unbounded to the right
      * @param node  the node that contains or whose subtree contains the beginning of our range = x
      * @param indexNode the index at which Key x is written/saved in the given node
      * @return a triplet consisting of: the monoid of the subrange the method was called on, the LeafNode and index that contain the first key >= y
@@ -138,12 +437,12 @@ public class Tree <Key extends Comparable<Key>, Value, M>{
     public Pair<M, Pair<Node<Key, Value, M>, Integer>> computeFingerprint (Key y, Node<Key, Value, M> node, int indexNode){
         M acc = this.monoid.identity();
         while (node != null){
-            if (this.monoid.compare(node.label, y) < 0) {
+            if (y == null || this.monoid.compare(node.label, y) < 0) {//y = null: the range is unbounded, only go up
                 //aggregateUP: aggregates the hash-values of all upward Nodes that are in the range [x, y]
                 //             This means that this function only looks at parents of our node and only goes upwards in the tree
-                //runtime optimisation: check if the Node is in range from index = 0 to index = node.keys.size() -> then add the whole label of the node
+                //runtime optimisation: check if the Node is in range from index = 0 to index = node.numKeys -> then add the whole label of the node
                 //                      (can only actually occur with the first LeafNode we look at)
-                Pair<M, Integer> pair = node.aggregate(indexNode, y, node.keys.size() + 1, true); //+1 so that we also add the last child of InnerNodes
+                Pair<M, Integer> pair = node.aggregate(indexNode, y, node.numKeys + 1, true); //+1 so that we also add the last child of InnerNodes
                 acc = this.monoid.combine(acc, pair.getFirst());
 
                 if (node.parent == null) {
@@ -154,14 +453,14 @@ public class Tree <Key extends Comparable<Key>, Value, M>{
                 }
             } else {
                 //runtime optimisation: it's possible that aggUP already added everything needed (different from line 147) -> aggDOWN unnecessary
-                //                      that is the case when node.keys.get(indexNode-1) > y (-> we are not at the end of the node, but we are at the end of range)
+                //                      that is the case when node.keys[indexNode-1] > y (-> we are not at the end of the node, but we are at the end of range)
                 //                      -> the Key that marks the first element of the next child to look at is outside our range
                 //aggregateDOWN: aggregates the hash-values of all downward Nodes that are in the range [x, y]
                 //               This means that this function only looks at the children of our node and only goes downwards in the tree
-                Pair<M, Integer> pair = node.aggregate(indexNode, y, node.keys.size(), false);
+                Pair<M, Integer> pair = node.aggregate(indexNode, y, node.numKeys, false);
                 indexNode = pair.getSecond();
                 acc = this.monoid.combine(acc, pair.getFirst());
-                //runtime optimisation: we can stop aggDOWN earlier if (node.keys.get(index) > y and node.getChildren(index).greatestElement < y)
+                //runtime optimisation: we can stop aggDOWN earlier if (node.keys[index] > y and node.getChildren(index).greatestElement < y)
                 //                      then we simply need to add the whole left child and return
 
                 if (node.getNodeType() == NodeType.LeafNode){
@@ -172,26 +471,322 @@ public class Tree <Key extends Comparable<Key>, Value, M>{
                 }
             }
         }
-        /*if (node != null && indexNode == node.keys.size()){
+        /*if (node != null && indexNode == node.numKeys){
             node = node.getRightSibling();
             indexNode = 0;
         }*/
         return new Pair<>(acc, Pair.createPair(node, indexNode));
     }
 
+    /**
+     * @return a result holder for {@link #computeFingerprint(Comparable, Node, int, Fingerprint)} that can be reused for every call
+     */
+    public Fingerprint<Key, Value, M> newFingerprint(){
+        if (this.monoid instanceof MutableMonoid){
+            return new Fingerprint<>(((MutableMonoid<M, Key>) this.monoid).newAccumulator());
+        }
+        return new Fingerprint<>(this.monoid.identity());
+    }
+
+    /**
+     * Works exactly like {@link #computeFingerprint(Comparable, Node, int)}, but writes the result into the given holder.
+     * If the monoid is a {@link MutableMonoid}, all keys and labels are combined into the accumulator of the holder,
+     * so the computation does not allocate anything.
+     * @param result a holder created by {@link #newFingerprint()}, its previous content is overwritten
+     * @return result
+     */
+    public Fingerprint<Key, Value, M> computeFingerprint (Key y, Node<Key, Value, M> node, int indexNode, Fingerprint<Key, Value, M> result){
+        if (!(this.monoid instanceof MutableMonoid)){
+            Pair<M, Pair<Node<Key, Value, M>, Integer>> pair = computeFingerprint(y, node, indexNode);
+            result.value = pair.getFirst();
+            result.node = pair.getSecond().getFirst();
+            result.index = pair.getSecond().getSecond();
+            return result;
+        }
+        MutableMonoid<M, Key> mutable = (MutableMonoid<M, Key>) this.monoid;
+        M acc = result.value;
+        mutable.reset(acc);
+        while (node != null){
+            if (y == null || this.monoid.compare(node.label, y) < 0) {//y = null: the range is unbounded, only go up
+                //aggregateUP (see above)
+                node.aggregateInto(mutable, acc, indexNode, y, node.numKeys + 1, true);
+                if (node.parent == null) {
+                    node = null;
+                    indexNode = 0;
+                } else {
+                    indexNode = node.indexInParent + 1;
+                    node = node.parent;
+                }
+            } else {
+                //aggregateDOWN (see above)
+                indexNode = node.aggregateInto(mutable, acc, indexNode, y, node.numKeys, false);
+                if (node.getNodeType() == NodeType.LeafNode){
+                    break;
+                } else {
+                    node = ((InnerNode<Key, Value, M>) node).getChild(indexNode);
+                    indexNode = 0;
+                }
+            }
+        }
+        result.node = node;
+        result.index = indexNode;
+        return result;
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) without the caller having to search the start leaf
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     * @return the monoid of the range, identity if the range is empty
+     */
+    public M fingerprint(Key x, Key y){
+        if (x != null && y != null && x.compareTo(y) >= 0){
+            return this.monoid.identity();
+        }
+        LeafNode<Key, Value, M> leaf = startLeaf(x);
+        int index = x == null ? 0 : leaf.searchNextBest(x);
+        return computeFingerprint(y, leaf, index).getFirst();
+    }
+
+    /**
+     * computes the fingerprints of the adjacent ranges [splitKeys[0], splitKeys[1]), [splitKeys[1], splitKeys[2]), ...
+     * in one pass from left to right: every range continues at the node and index where the previous one stopped,
+     * so only the first range searches from the root.
+     * @param splitKeys ascending boundaries of the ranges, the first and the last one may be null (unbounded)
+     * @return splitKeys.length - 1 fingerprints in the order of the ranges
+     */
+    public ArrayList<M> fingerprints(Key[] splitKeys){
+        ArrayList<M> result = new ArrayList<>(Math.max(0, splitKeys.length - 1));
+        if (splitKeys.length < 2){
+            return result;
+        }
+        for (int i = 1; i < splitKeys.length; i++){
+            Key from = splitKeys[i - 1];
+            Key to = splitKeys[i];
+            if ((from == null && i > 1) || (to == null && i < splitKeys.length - 1) || (from != null && to != null && from.compareTo(to) > 0)){
+                throw new IllegalArgumentException("split keys must be ascending, only the first and last one may be null");
+            }
+        }
+        Node<Key, Value, M> node = startLeaf(splitKeys[0]);
+        int index = splitKeys[0] == null ? 0 : node.searchNextBest(splitKeys[0]);
+        for (int i = 1; i < splitKeys.length; i++){
+            if (node == null){//a previous range already reached the end of the tree
+                result.add(this.monoid.identity());
+                continue;
+            }
+            Pair<M, Pair<Node<Key, Value, M>, Integer>> pair = computeFingerprint(splitKeys[i], node, index);
+            result.add(pair.getFirst());
+            node = pair.getSecond().getFirst();
+            index = pair.getSecond().getSecond();
+        }
+        return result;
+    }
+
+    /**
+     * @see #fingerprints(Comparable[])
+     */
+    public ArrayList<M> fingerprints(List<Key> splitKeys){
+        @SuppressWarnings({"unchecked", "rawtypes"})//the array only holds Keys and does not leave this class
+        Key[] keys = (Key[]) splitKeys.toArray(new Comparable[0]);
+        return fingerprints(keys);
+    }
+
+    /**
+     * @return the number of keys in the tree (needs a {@link SizedMonoid})
+     */
+    public int size(){
+        return sizedMonoid().size(this.root.label);
+    }
+
+    /**
+     * Descends from the root and adds up the sizes of all children left of the path to key
+     * @return the number of keys in the tree that are smaller than key (needs a {@link SizedMonoid})
+     */
+    public int rank(Key key){
+        SizedMonoid<M, Key> sized = sizedMonoid();
+        int rank = 0;
+        Node<Key, Value, M> node = this.root;
+        while (node.getNodeType() == NodeType.InnerNode) {
+            InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+            int index = inner.searchInNode(key);
+            for (int i = 0; i < index; i++){
+                rank += sized.size(inner.getChild(i).label);
+            }
+            node = inner.getChild(index);
+        }
+        return rank + node.searchNextBest(key);
+    }
+
+    /**
+     * Descends from the root into the child that contains the k-th key, using the sizes of the children
+     * @param k position of the key, starting at 0
+     * @return the k-th smallest key or null, if k < 0 or k >= size() (needs a {@link SizedMonoid})
+     */
+    public Key select(int k){
+        SizedMonoid<M, Key> sized = sizedMonoid();
+        if (k < 0 || k >= sized.size(this.root.label)){
+            return null;
+        }
+        Node<Key, Value, M> node = this.root;
+        while (node.getNodeType() == NodeType.InnerNode) {
+            InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+            int index = 0;
+            int childSize = sized.size(inner.getChild(0).label);
+            while (k >= childSize && index < inner.getSizeChildren() - 1){
+                k -= childSize;
+                index++;
+                childSize = sized.size(inner.getChild(index).label);
+            }
+            node = inner.getChild(index);
+        }
+        return node.getKey(k);
+    }
+
+    /**
+     * Cuts [x, y) into parts ranges that contain (roughly) the same number of keys, independent of how the keys are distributed.
+     * Every boundary costs one rank/select descent, so this is O(parts * height).
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     * @param parts the number of ranges we want
+     * @return ascending boundaries starting with x and ending with y, for fingerprints(List). If [x, y) contains less than
+     *         parts keys, boundaries that would produce empty ranges are left out, so the list can have less than parts + 1 entries
+     */
+    public ArrayList<Key> splitRange(Key x, Key y, int parts){
+        if (parts < 1){
+            throw new IllegalArgumentException("parts must be at least 1, but was " + parts);
+        }
+        int from = x == null ? 0 : rank(x);
+        int to = y == null ? size() : rank(y);
+        ArrayList<Key> boundaries = new ArrayList<>(parts + 1);
+        boundaries.add(x);
+        int last = from;
+        for (int i = 1; i < parts; i++){
+            int position = from + (int) ((long) (to - from) * i / parts);
+            if (position > last){//otherwise the range in between would be empty
+                boundaries.add(select(position));
+                last = position;
+            }
+        }
+        boundaries.add(y);
+        return boundaries;
+    }
+
+    private SizedMonoid<M, Key> sizedMonoid(){
+        if (!(this.monoid instanceof SizedMonoid)){
+            throw new UnsupportedOperationException("rank, select and splitRange need a SizedMonoid, but the tree uses " + this.monoid.getClass().getSimpleName());
+        }
+        return (SizedMonoid<M, Key>) this.monoid;
+    }
+
+    /**
+     * @return the leaf that should contain x or the leftmost leaf, if x is null
+     */
+    private LeafNode<Key, Value, M> startLeaf(Key x){
+        if (x != null){
+            return shouldContainKey(x);
+        }
+        Node<Key, Value, M> node = this.root;
+        while (node.getNodeType() == NodeType.InnerNode){
+            node = ((InnerNode<Key, Value, M>) node).getChild(0);
+        }
+        return (LeafNode<Key, Value, M>) node;
+    }
+
     /* FOR TESTING */
     public Node<Key, Value, M> getRoot() {
         return root;
     }
 
     /**
-     * collects all Keys between x and y (including x and y)
-     * THIS FUNCTION WORKS THE SAME AS "computeFingerprint"
-     * @param x starting point of range
-     * @param y end point of range (y > x)
+     * Computes the symmetric difference of the keys of this tree and other (both have to use the same kind of monoid).
+     * Walks this tree from the root and compares the label of every node with the fingerprint of the key range of
+     * the node in other; ranges with equal labels are skipped, only differing LeafNodes are merged key by key.
+     * So the cost depends on the number of differences and not on the size of the trees (the labels have to implement
+     * equals, e.g. {@link ExampleMonoid}, otherwise every range differs and this is a merge of both leaf chains).
+     * @param listener gets the keys only other has (added) and the keys only this tree has (removed) in ascending order
+     */
+    public void diff(Tree<Key, Value, M> other, DiffListener<Key> listener){
+        diff(this.root, null, null, other, listener);
+    }
+
+    /**
+     * @param from the smallest key node may contain (inclusive), null if unbounded
+     * @param to   the key all keys of node are smaller than, null if unbounded
+     */
+    private void diff(Node<Key, Value, M> node, Key from, Key to, Tree<Key, Value, M> other, DiffListener<Key> listener){
+        if (node.label.equals(other.fingerprint(from, to))){
+            return;//same keys in this range
+        }
+        if (node.getNodeType() == NodeType.InnerNode){
+            InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+            int last = inner.getSizeChildren() - 1;
+            for (int i = 0; i <= last; i++){
+                //the separators of the node are the bounds of the ranges of its children
+                diff(inner.getChild(i), i == 0 ? from : inner.getKey(i - 1), i == last ? to : inner.getKey(i), other, listener);
+            }
+            return;
+        }
+        //merge the keys of the leaf with the keys of other in the same range
+        RangeCursor<Key, Value, M> mine = new RangeCursor<>((LeafNode<Key, Value, M>) node, 0, to);
+        RangeCursor<Key, Value, M> theirs = other.rangeCursor(from, to);
+        boolean hasMine = mine.next();
+        boolean hasTheirs = theirs.next();
+        while (hasMine || hasTheirs){
+            int compare;
+            if (!hasMine){
+                compare = 1;
+            } else if (!hasTheirs){
+                compare = -1;
+            } else {
+                compare = mine.getKey().compareTo(theirs.getKey());
+            }
+            if (compare < 0){
+                listener.removed(mine.getKey());
+                hasMine = mine.next();
+            } else if (compare > 0){
+                listener.added(theirs.getKey());
+                hasTheirs = theirs.next();
+            } else {
+                hasMine = mine.next();
+                hasTheirs = theirs.next();
+            }
+        }
+    }
+
+    /**
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     * @return a cursor over the key-value pairs in [x, y), it is only valid until the tree is modified
+     */
+    public RangeCursor<Key, Value, M> rangeCursor(Key x, Key y){
+        if (x != null && y != null && x.compareTo(y) >= 0){
+            return new RangeCursor<>(null, 0, y);
+        }
+        LeafNode<Key, Value, M> leaf = startLeaf(x);
+        return new RangeCursor<>(leaf, x == null ? 0 : leaf.searchNextBest(x), y);
+    }
+
+    /**
+     * writes a read-only image of the tree to path that {@link FrozenTree#open(Path)} maps into memory
+     * (layout: {@link NodePageFormat}). Keys and values have to be Integers or Longs.
+     * @throws IllegalArgumentException if a key or value is no Integer or Long
+     */
+    public void freeze(Path path) throws IOException {
+        FrozenTree.write(this, path);
+    }
+
+    /**
+     * collects all Keys between x and y (including x, excluding y), like computeFingerprint
+     * @param x starting point of range, null if the range is unbounded to the left
+     * @param y end point of range (y > x), null if the range is unbounded to the right
      * @return ordered ArrayList of Keys from x to y
      */
     public ArrayList<Key> aggregateRange(Key x, Key y){
-        return null;
+        ArrayList<Key> keys = new ArrayList<>();
+        RangeCursor<Key, Value, M> cursor = rangeCursor(x, y);
+        while (cursor.next()){
+            keys.add(cursor.getKey());
+        }
+        return keys;
     }
 }
@@ -0,0 +1,53 @@
+package org.example;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Reference engine without labels: the entries are kept in a {@link TreeMap} and a fingerprint iterates every key of
+ * the range, O(log n + range width) per fingerprint. Gives the same result as a {@link Tree} with an {@link ExampleMonoid}.
+ */
+public class TreeMapBaseline <Key extends Comparable<Key>, Value>{
+    private final TreeMap<Key, Value> map = new TreeMap<>();
+    private final ExampleMonoid<Key> monoid = new ExampleMonoid<>(0, 0, null);
+
+    public void insert(Key key, Value value){
+        this.map.put(key, value);
+    }
+
+    public void delete(Key key){
+        this.map.remove(key);
+    }
+
+    public Value searchValue(Key key){
+        return this.map.get(key);
+    }
+
+    public int size(){
+        return this.map.size();
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y) by iterating the subMap
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     * @return the monoid of the range, identity if the range is empty
+     */
+    public ExampleMonoid<Key> fingerprint(Key x, Key y){
+        ExampleMonoid<Key> acc = this.monoid.newAccumulator();
+        if (x != null && y != null && x.compareTo(y) >= 0){
+            return acc;
+        }
+        NavigableMap<Key, Value> range = this.map;
+        if (x != null){
+            range = range.tailMap(x, true);
+        }
+        if (y != null){
+            range = range.headMap(y, false);
+        }
+        for (Key key : range.keySet()){
+            this.monoid.combineKeyInto(acc, key);
+        }
+        return acc;
+    }
+}
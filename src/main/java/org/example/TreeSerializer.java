@@ -0,0 +1,194 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Streams a whole {@link Tree} into a compact snapshot and rebuilds it bottom-up in one pass.
+ * The snapshot contains the levels from the LeafNodes up to the root:
+ *   header:  MAGIC int | VERSION byte | labels included byte | degree varint | number of levels varint
+ *   leaves:  number of leaves varint | per leaf: numKeys varint, keys (Codec.writeDelta from the previous key of
+ *            the whole leaf order, e.g. varint differences), values, [label]
+ *   inner:   (per level, bottom-up) number of nodes varint | per node: number of children varint, [label]
+ * The keys of the InnerNodes are not stored, they are the smallest keys of their right subtrees (like after bulk
+ * loading). With labels, loading never calls calculateLabel; without them every label is calculated once.
+ */
+public class TreeSerializer <Key extends Comparable<Key>, Value, M>{
+    private static final int MAGIC = 0x54525352;//"TRSR"
+    private static final int VERSION = 1;
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valueCodec;
+    private final Codec<M> labelCodec;//null = snapshots without labels
+
+    /**
+     * @param labelCodec codec for the labels (e.g. ExampleMonoid.codec), null to write snapshots without labels
+     */
+    public TreeSerializer(Codec<Key> keyCodec, Codec<Value> valueCodec, Codec<M> labelCodec){
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.labelCodec = labelCodec;
+    }
+
+    /**
+     * writes a snapshot of tree to out (out is flushed, but not closed)
+     */
+    public void write(Tree<Key, Value, M> tree, OutputStream out) throws IOException {
+        //collect the levels top-down, the snapshot stores them bottom-up
+        ArrayList<ArrayList<Node<Key, Value, M>>> levels = new ArrayList<>();
+        ArrayList<Node<Key, Value, M>> level = new ArrayList<>();
+        level.add(tree.root);
+        while (true){
+            levels.add(level);
+            if (level.get(0).getNodeType() == NodeType.LeafNode){
+                break;
+            }
+            ArrayList<Node<Key, Value, M>> children = new ArrayList<>();
+            for (Node<Key, Value, M> node : level){
+                InnerNode<Key, Value, M> inner = (InnerNode<Key, Value, M>) node;
+                for (int i = 0; i < inner.getSizeChildren(); i++){
+                    children.add(inner.getChild(i));
+                }
+            }
+            level = children;
+        }
+        Collections.reverse(levels);
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(this.labelCodec != null ? 1 : 0);
+        Codec.writeVarLong(data, tree.getDegree());
+        Codec.writeVarLong(data, levels.size());
+        Key previous = null;
+        Codec.writeVarLong(data, levels.get(0).size());
+        for (Node<Key, Value, M> node : levels.get(0)){
+            LeafNode<Key, Value, M> leaf = (LeafNode<Key, Value, M>) node;
+            Codec.writeVarLong(data, leaf.numKeys);
+            for (int i = 0; i < leaf.numKeys; i++){
+                this.keyCodec.writeDelta(data, previous, leaf.keys[i]);
+                previous = leaf.keys[i];
+            }
+            for (int i = 0; i < leaf.numKeys; i++){
+                this.valueCodec.write(data, leaf.getValue(i));
+            }
+            this.writeLabel(data, leaf);
+        }
+        for (int l = 1; l < levels.size(); l++){
+            Codec.writeVarLong(data, levels.get(l).size());
+            for (Node<Key, Value, M> node : levels.get(l)){
+                Codec.writeVarLong(data, ((InnerNode<Key, Value, M>) node).getSizeChildren());
+                this.writeLabel(data, node);
+            }
+        }
+        data.flush();
+    }
+
+    private void writeLabel(DataOutputStream data, Node<Key, Value, M> node) throws IOException {
+        if (this.labelCodec != null){
+            this.labelCodec.write(data, node.label);
+        }
+    }
+
+    /**
+     * rebuilds a tree from a snapshot, the tree gets the degree of the snapshot
+     * @throws IOException if in is no snapshot of this version or the structure is inconsistent
+     */
+    public Tree<Key, Value, M> read(Monoid<M, Key> monoid, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != MAGIC || data.readByte() != VERSION){
+            throw new IOException("not a tree snapshot of version " + VERSION);
+        }
+        boolean labels = data.readByte() == 1;
+        if (labels && this.labelCodec == null){
+            throw new IOException("the snapshot contains labels, but the serializer has no label codec");
+        }
+        int degree = (int) Codec.readVarLong(data);
+        int numLevels = (int) Codec.readVarLong(data);
+        Tree<Key, Value, M> tree = new Tree<>(monoid, degree);
+
+        //1: the LeafNodes, linked as siblings
+        int numLeaves = (int) Codec.readVarLong(data);
+        ArrayList<Node<Key, Value, M>> level = new ArrayList<>(numLeaves);
+        ArrayList<Key> firstKeys = new ArrayList<>(numLeaves);//smallest key in the subtree of every node of level
+        LeafNode<Key, Value, M> left = null;
+        Key previous = null;
+        for (int n = 0; n < numLeaves; n++){
+            LeafNode<Key, Value, M> leaf = new LeafNode<Key, Value, M>(monoid, degree);
+            int numKeys = checkSize((int) Codec.readVarLong(data), 0, degree);
+            for (int i = 0; i < numKeys; i++){
+                previous = this.keyCodec.readDelta(data, previous);
+                leaf.keys[i] = previous;
+            }
+            for (int i = 0; i < numKeys; i++){
+                leaf.setValue(i, this.valueCodec.read(data));
+            }
+            leaf.numKeys = numKeys;
+            this.readLabel(data, labels, leaf);
+            if (left != null){
+                left.setRightSibling(leaf);
+            }
+            left = leaf;
+            level.add(leaf);
+            firstKeys.add(numKeys > 0 ? leaf.keys[0] : null);
+        }
+
+        //2: every level of InnerNodes on top of the previous one
+        for (int l = 1; l < numLevels; l++){
+            int numNodes = (int) Codec.readVarLong(data);
+            ArrayList<Node<Key, Value, M>> parents = new ArrayList<>(numNodes);
+            ArrayList<Key> parentFirstKeys = new ArrayList<>(numNodes);
+            int index = 0;
+            for (int n = 0; n < numNodes; n++){
+                InnerNode<Key, Value, M> inner = new InnerNode<Key, Value, M>(monoid, degree);
+                int numChildren = checkSize((int) Codec.readVarLong(data), 2, degree + 1);
+                if (index + numChildren > level.size()){
+                    throw new IOException("the snapshot has more children than nodes on the level below");
+                }
+                parentFirstKeys.add(firstKeys.get(index));
+                for (int i = 0; i < numChildren; i++, index++){
+                    Node<Key, Value, M> child = level.get(index);
+                    if (i > 0){
+                        inner.addKey(firstKeys.get(index));//the key in front of a child is the smallest key of that child
+                    }
+                    child.parent = inner;
+                    child.indexInParent = i;
+                    inner.addChild(child);
+                }
+                this.readLabel(data, labels, inner);
+                parents.add(inner);
+            }
+            if (index != level.size()){
+                throw new IOException("the snapshot has fewer children than nodes on the level below");
+            }
+            level = parents;
+            firstKeys = parentFirstKeys;
+        }
+        if (level.size() != 1){
+            throw new IOException("the top level of the snapshot has " + level.size() + " nodes");
+        }
+        tree.root = level.get(0);
+        return tree;
+    }
+
+    private void readLabel(DataInputStream data, boolean labels, Node<Key, Value, M> node) throws IOException {
+        if (labels){
+            node.label = this.labelCodec.read(data);
+        } else {
+            node.calculateLabel();
+        }
+    }
+
+    private static int checkSize(int size, int min, int max) throws IOException {
+        if (size < min || size > max){
+            throw new IOException("node size " + size + " is not in [" + min + ", " + max + "]");
+        }
+        return size;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable version of a {@link PersistentTree}: every read sees the state of the tree at the time the snapshot
+ * was taken, no matter how the tree is changed afterwards. Taking a snapshot copies nothing, it only keeps the root
+ * of that version (the nodes stay alive as long as a snapshot references them).
+ */
+public class TreeSnapshot <Key extends Comparable<Key>, Value, M>{
+    private final PersistentNode<Key, Value, M> root;
+    private final Monoid<M, Key> monoid;
+
+    TreeSnapshot(PersistentNode<Key, Value, M> root, Monoid<M, Key> monoid){
+        this.root = root;
+        this.monoid = monoid;
+    }
+
+    /**
+     * @return value associated with the specified key or null
+     */
+    public Value searchValue(Key key){
+        return this.root.searchValue(key);
+    }
+
+    /**
+     * computes the fingerprint of the range [x, y), like {@link Tree#fingerprint(Comparable, Comparable)}
+     * @param x start point of range (inclusive), null if the range is unbounded to the left
+     * @param y end point of range (exclusive), null if the range is unbounded to the right
+     */
+    public M fingerprint(Key x, Key y){
+        if (x != null && y != null && x.compareTo(y) >= 0){
+            return this.monoid.identity();
+        }
+        return this.root.aggregate(this.monoid, x, y);
+    }
+
+    /**
+     * computes the fingerprints of the adjacent ranges [splitKeys[0], splitKeys[1]), [splitKeys[1], splitKeys[2]), ...
+     * all of them from the same version of the tree
+     */
+    public ArrayList<M> fingerprints(List<Key> splitKeys){
+        ArrayList<M> result = new ArrayList<>(Math.max(0, splitKeys.size() - 1));
+        for (int i = 1; i < splitKeys.size(); i++){
+            result.add(fingerprint(splitKeys.get(i - 1), splitKeys.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the label of the whole tree
+     */
+    public M getLabel(){
+        return this.root.label;
+    }
+}
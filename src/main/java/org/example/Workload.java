@@ -0,0 +1,271 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * A reproducible benchmark dataset: distinct keys in insertion order plus a query set, generated from a seed.
+ * All keys are even, so key + 1 is never in the dataset (a guaranteed miss or a new key between two keys).
+ * Distributions:
+ *   uniform:     keys from [0, 20 * size)
+ *   zipf:        keys drawn with a Zipf distribution (exponent ZIPF_EXPONENT) from [0, 20 * size): a dense block of hot
+ *                small keys and a sparse tail, the lookups prefer the small keys the same way
+ *   sequential:  0, 2, 4, ... inserted in ascending order
+ *   clustered:   runs of 100 consecutive even keys at random positions in [0, 200 * size + 200)
+ *   adversarial: uniform keys (from [0, 20 * size)) inserted alternately from both ends (smallest, largest, second smallest, ...), every
+ *                insert hits the leftmost or rightmost LeafNode and the splits leave half full nodes behind;
+ *                every lookup misses
+ * A dataset is saved as one binary file (header + int arrays) and loaded with one read, see {@link #load(String, int, int, long, Path)}.
+ */
+public final class Workload {
+    public static final double ZIPF_EXPONENT = 0.99;
+    private static final int MAGIC = 0x574b4c44;//"WKLD"
+    private static final int VERSION = 1;//of the file format
+    private static final int GENERATOR = 1;//increment on every change of generate, it is part of the file name in load
+
+    private final String distribution;
+    private final long seed;
+    private final int[] keys;//insertion order
+    private final int[] sortedKeys;
+    private final int[] lookups;//keys for searchValue, half of them (all for adversarial) are misses
+    private final int[] rangeStarts;//indexes into sortedKeys
+
+    private Workload(String distribution, long seed, int[] keys, int[] lookups, int[] rangeStarts){
+        this.distribution = distribution;
+        this.seed = seed;
+        this.keys = keys;
+        this.sortedKeys = keys.clone();
+        Arrays.sort(this.sortedKeys);
+        this.lookups = lookups;
+        this.rangeStarts = rangeStarts;
+    }
+
+    /**
+     * generates a dataset, the same arguments always give the same dataset
+     * @param queries number of lookups and range starts
+     */
+    public static Workload generate(String distribution, int size, int queries, long seed){
+        if (size < 1 || queries < 1){
+            throw new IllegalArgumentException("size and queries have to be at least 1, were " + size + " and " + queries);
+        }
+        Random ran = new Random(seed);
+        int[] keys = new int[size];
+        int[] lookups = new int[queries];
+        int[] rangeStarts = new int[queries];
+        HashSet<Integer> used = new HashSet<>();
+        switch (distribution){
+            case "uniform":
+            case "adversarial":
+                for (int i = 0; i < size; ){
+                    int key = ran.nextInt(10 * size);
+                    if (used.add(key)){
+                        keys[i++] = 2 * key;
+                    }
+                }
+                if (distribution.equals("adversarial")){
+                    int[] sorted = keys.clone();
+                    Arrays.sort(sorted);
+                    for (int i = 0, low = 0, high = size - 1; i < size; i++){
+                        keys[i] = i % 2 == 0 ? sorted[low++] : sorted[high--];
+                    }
+                }
+                break;
+            case "zipf":
+                Zipf zipf = new Zipf(10L * size, ZIPF_EXPONENT);
+                for (int i = 0; i < size; ){
+                    int key = (int) zipf.sample(ran) - 1;
+                    if (used.add(key)){
+                        keys[i++] = 2 * key;
+                    }
+                }
+                break;
+            case "sequential":
+                for (int i = 0; i < size; i++){
+                    keys[i] = 2 * i;
+                }
+                break;
+            case "clustered":
+                for (int i = 0; i < size; ){
+                    int start = ran.nextInt(100 * size);
+                    for (int j = 0; j < 100 && i < size; j++){
+                        if (used.add(start + j)){
+                            keys[i++] = 2 * (start + j);
+                        }
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown distribution " + distribution);
+        }
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        Zipf ranks = distribution.equals("zipf") ? new Zipf(size, ZIPF_EXPONENT) : null;
+        for (int i = 0; i < queries; i++){
+            int key = ranks != null ? sorted[(int) ranks.sample(ran) - 1] : sorted[ran.nextInt(size)];
+            lookups[i] = i % 2 == 0 && !distribution.equals("adversarial") ? key : key + 1;
+            rangeStarts[i] = ran.nextInt(size);
+        }
+        return new Workload(distribution, seed, keys, lookups, rangeStarts);
+    }
+
+    /**
+     * loads the dataset from dir or generates it and saves it there, if it does not exist yet
+     * (file name: distribution-size-queries-seed-gGENERATOR.wkld, so a file of an older generate is not reused)
+     */
+    public static Workload load(String distribution, int size, int queries, long seed, Path dir) throws IOException {
+        Path path = dir.resolve(distribution + "-" + size + "-" + queries + "-" + seed + "-g" + GENERATOR + ".wkld");
+        if (Files.exists(path)){
+            return read(path);
+        }
+        Workload workload = generate(distribution, size, queries, seed);
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "workload", ".tmp");//another fork may write the same file at the same time
+        workload.save(tmp);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return workload;
+    }
+
+    /**
+     * format: MAGIC int | VERSION int | seed long | distribution length int + bytes | keys | lookups | rangeStarts
+     * (every array: length int + ints, big endian)
+     */
+    public void save(Path path) throws IOException {
+        byte[] name = this.distribution.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(20 + name.length + 4 * (3 + this.keys.length + this.lookups.length + this.rangeStarts.length));
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(this.seed).putInt(name.length).put(name);
+        for (int[] array : new int[][]{this.keys, this.lookups, this.rangeStarts}){
+            buffer.putInt(array.length);
+            buffer.asIntBuffer().put(array);
+            buffer.position(buffer.position() + 4 * array.length);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            while (buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * reads a dataset written by save
+     */
+    public static Workload read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+            throw new IOException(path + " is not a workload file of version " + VERSION);
+        }
+        long seed = buffer.getLong();
+        byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+        int[][] arrays = new int[3][];
+        for (int i = 0; i < arrays.length; i++){
+            arrays[i] = new int[buffer.getInt()];
+            buffer.asIntBuffer().get(arrays[i]);
+            buffer.position(buffer.position() + 4 * arrays[i].length);
+        }
+        return new Workload(new String(name, StandardCharsets.UTF_8), seed, arrays[0], arrays[1], arrays[2]);
+    }
+
+    public String getDistribution(){
+        return this.distribution;
+    }
+
+    public long getSeed(){
+        return this.seed;
+    }
+
+    public int size(){
+        return this.keys.length;
+    }
+
+    /**
+     * @return the keys in insertion order (not a copy)
+     */
+    public int[] getKeys(){
+        return this.keys;
+    }
+
+    /**
+     * @return the keys in ascending order (not a copy)
+     */
+    public int[] getSortedKeys(){
+        return this.sortedKeys;
+    }
+
+    /**
+     * @return the keys for the lookups (not a copy)
+     */
+    public int[] getLookups(){
+        return this.lookups;
+    }
+
+    /**
+     * @return the start of every range query as an index into getSortedKeys (not a copy)
+     */
+    public int[] getRangeStarts(){
+        return this.rangeStarts;
+    }
+
+    /**
+     * Zipf distribution over 1..n with P(k) ~ 1/k^exponent, sampled by rejection-inversion
+     * (Hörmann and Derflinger) in O(1) without a table
+     */
+    private static final class Zipf {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        Zipf(long n, double exponent){
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        long sample(Random ran){
+            while (true){
+                double u = this.hIntegralN + ran.nextDouble() * (this.hIntegralX1 - this.hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = Math.max(1, Math.min(this.n, (long) (x + 0.5)));
+                if (k - x <= this.s || u >= hIntegral(k + 0.5) - h(k)){
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x){
+            return Math.exp(-this.exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x){
+            double logX = Math.log(x);
+            return helper2((1 - this.exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x){
+            double t = Math.max(-1, x * (1 - this.exponent));
+            return Math.exp(helper1(t) * x);
+        }
+
+        //log1p(x)/x and expm1(x)/x, with their Taylor series near 0
+        private static double helper1(double x){
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1 / 3.0 - 0.25 * x));
+        }
+
+        private static double helper2(double x){
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
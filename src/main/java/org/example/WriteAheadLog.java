@@ -0,0 +1,403 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of inserts and deletes that makes an in-memory {@link Tree} durable.
+ * Every record is: payload length int | CRC32 of the payload int | payload (type byte, key, value for inserts).
+ * Appending only copies the record into a buffer; a sync thread writes the buffer and calls fsync once per
+ * group-commit window for all records appended in the meantime (group commit). insert/delete return when their
+ * record is durable, append* + awaitDurable allow to wait for many records at once.
+ * After a crash: build the tree from the latest snapshot, open the log (a torn record at the end is cut off) and
+ * replay it. Take getAppendedLsn when a snapshot starts and truncate the log up to it when the snapshot is saved,
+ * so the replay time is bounded by the log tail. Log sequence numbers count the records since the log was opened
+ * (the records found in the file when it is opened get the numbers 1..n).
+ */
+public class WriteAheadLog <Key extends Comparable<Key>, Value> implements Closeable {
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+    private static final int MAX_RECORD = 1 << 24;//longer lengths can only come from a torn or corrupt record
+    private static final int REPLAY_BATCH = 1 << 16;//records per insertAll/deleteAll during replay
+
+    private final Path path;
+    private FileChannel channel;//replaced by truncate, guarded by this
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valueCodec;
+    private final long windowNanos;//group-commit window
+    private final Thread syncer;
+
+    //guarded by this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();//records that are not written yet
+    private final DataOutputStream pendingOut = new DataOutputStream(this.pending);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(this.record);
+    private final CRC32 crc = new CRC32();
+    private long appendedLsn;//number of the last appended record
+    private long durableLsn;//number of the last record that is fsynced
+    private long firstLsn;//number of the last record that was truncated, the file starts with record firstLsn + 1
+    private boolean writing;//the sync thread writes records outside the lock
+    private volatile boolean running = true;
+    private IOException failure;
+
+    //metrics
+    private long syncs;
+    private long bytesWritten;
+
+    /**
+     * opens (or creates) the log at path, a torn or corrupt record at the end (and everything behind it) is cut off
+     * @param groupCommitMicros how long the sync thread collects records before it writes and fsyncs them,
+     *                          0 = sync as soon as the previous fsync is done
+     */
+    public WriteAheadLog(Path path, Codec<Key> keyCodec, Codec<Value> valueCodec, long groupCommitMicros) throws IOException {
+        this.path = path;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitMicros);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = this.scan(null);
+        if (end < this.channel.size()){
+            this.channel.truncate(end);
+            this.channel.force(true);
+        }
+        this.channel.position(end);
+        for (long position = 0; position < end; position += 8 + this.recordLength(position)){
+            this.appendedLsn++;
+        }
+        this.durableLsn = this.appendedLsn;
+        this.syncer = new Thread(this::syncLoop, "wal-sync");
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * appends an insert of key with value and waits until it is durable
+     */
+    public void insert(Key key, Value value) throws IOException, InterruptedException {
+        this.awaitDurable(this.appendInsert(key, value));
+    }
+
+    /**
+     * appends a delete of key and waits until it is durable
+     */
+    public void delete(Key key) throws IOException, InterruptedException {
+        this.awaitDurable(this.appendDelete(key));
+    }
+
+    /**
+     * appends an insert without waiting for the fsync
+     * @return the log sequence number of the record (-> awaitDurable)
+     */
+    public long appendInsert(Key key, Value value) throws IOException {
+        return this.append(INSERT, key, value);
+    }
+
+    /**
+     * appends a delete without waiting for the fsync
+     * @return the log sequence number of the record (-> awaitDurable)
+     */
+    public long appendDelete(Key key) throws IOException {
+        return this.append(DELETE, key, null);
+    }
+
+    private synchronized long append(byte type, Key key, Value value) throws IOException {
+        this.checkRunning();
+        this.record.reset();
+        this.recordOut.writeByte(type);
+        this.keyCodec.write(this.recordOut, key);
+        if (type == INSERT){
+            this.valueCodec.write(this.recordOut, value);
+        }
+        this.crc.reset();
+        this.crc.update(this.record.toByteArray(), 0, this.record.size());
+        this.pendingOut.writeInt(this.record.size());
+        this.pendingOut.writeInt((int) this.crc.getValue());
+        this.record.writeTo(this.pendingOut);
+        this.notifyAll();//wake up the sync thread
+        return ++this.appendedLsn;
+    }
+
+    /**
+     * waits until every record up to lsn is written and fsynced
+     * @throws IOException if the sync thread failed to write the log
+     */
+    public synchronized void awaitDurable(long lsn) throws IOException, InterruptedException {
+        while (this.durableLsn < lsn){
+            if (this.failure != null){
+                throw new IOException("the write-ahead log could not be synced", this.failure);
+            }
+            if (!this.running && !this.syncer.isAlive()){
+                throw new IllegalStateException("the write-ahead log is closed");
+            }
+            this.wait();
+        }
+    }
+
+    private void checkRunning() throws IOException {
+        if (this.failure != null){
+            throw new IOException("the write-ahead log could not be synced", this.failure);
+        }
+        if (!this.running){
+            throw new IllegalStateException("the write-ahead log is closed");
+        }
+    }
+
+    private void syncLoop(){
+        try {
+            while (true){
+                synchronized (this){
+                    while (this.pending.size() == 0 && this.running){
+                        this.wait();
+                    }
+                    if (this.pending.size() == 0){
+                        return;//closed and everything is written
+                    }
+                }
+                if (this.windowNanos > 0 && this.running){//let more records join this group
+                    TimeUnit.NANOSECONDS.sleep(this.windowNanos);
+                }
+                byte[] data;
+                long lsn;
+                FileChannel channel;
+                synchronized (this){
+                    data = this.pending.toByteArray();
+                    this.pending.reset();
+                    lsn = this.appendedLsn;
+                    channel = this.channel;
+                    this.writing = true;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                synchronized (this){
+                    this.writing = false;
+                    this.durableLsn = lsn;
+                    this.syncs++;
+                    this.bytesWritten += data.length;
+                    this.notifyAll();
+                }
+            }
+        } catch (IOException e){
+            synchronized (this){
+                this.writing = false;
+                this.failure = e;
+                this.notifyAll();
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replays every record of the log into tree (which should hold the state of the snapshot the log was truncated
+     * after). The records are collapsed in batches (the last record of a key wins) and applied with insertAll and
+     * deleteAll, so the labels are recalculated once per batch instead of once per record.
+     * @return the number of replayed records
+     */
+    public synchronized <M> long replay(Tree<Key, Value, M> tree) throws IOException {
+        Replay<Key, Value, M> replay = new Replay<>(tree);
+        this.scan(replay);
+        replay.apply();
+        return replay.records;
+    }
+
+    /**
+     * Removes the records up to lsn from the log, call it with the getAppendedLsn of a snapshot after the snapshot is
+     * saved. Records appended after lsn stay in the log and stay durable: they are copied into a new file, which
+     * replaces the log atomically, records that are not written yet go to the new file.
+     * Waits until the records up to lsn are durable.
+     */
+    public synchronized void truncate(long lsn) throws IOException, InterruptedException {
+        if (lsn > this.appendedLsn){
+            throw new IllegalArgumentException("lsn " + lsn + " was not appended yet, the last one is " + this.appendedLsn);
+        }
+        this.awaitDurable(lsn);
+        while (this.writing){//the file must not grow while its tail is copied
+            this.checkRunning();
+            this.wait();
+        }
+        if (lsn <= this.firstLsn){
+            return;
+        }
+        long start = 0;
+        for (long i = this.firstLsn; i < lsn; i++){
+            start += 8 + this.recordLength(start);
+        }
+        long end = this.channel.size();
+        Path temporary = this.path.resolveSibling(this.path.getFileName() + ".truncate");
+        try (FileChannel tail = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            for (long position = start; position < end; ){
+                position += this.channel.transferTo(position, end - position, tail);
+            }
+            tail.force(true);
+        }
+        Files.move(temporary, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(this.path.toAbsolutePath().getParent(), StandardOpenOption.READ)){
+            directory.force(true);//makes the rename durable
+        }
+        this.channel.close();
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(end - start);
+        this.firstLsn = lsn;
+    }
+
+    /**
+     * @return the payload length of the record at position of the file
+     */
+    private int recordLength(long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (length.hasRemaining()){
+            if (this.channel.read(length, position + length.position()) < 0){
+                throw new EOFException("no record at " + position);
+            }
+        }
+        return length.getInt(0);
+    }
+
+    /**
+     * reads the valid records from the start of the file
+     * @param replay gets every record, null if the records are only checked
+     * @return the position behind the last valid record
+     */
+    private long scan(Replay<Key, Value, ?> replay) throws IOException {
+        long end = 0;
+        InputStream stream = new BufferedInputStream(Channels.newInputStream(FileChannel.open(this.path, StandardOpenOption.READ)), 1 << 16);
+        try (DataInputStream in = new DataInputStream(stream)){
+            CRC32 crc = new CRC32();
+            while (true){
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 1 || length > MAX_RECORD){
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e){
+                    break;//end of the log or torn record
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum){
+                    break;
+                }
+                if (replay != null){
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                    byte type = record.readByte();
+                    Key key = this.keyCodec.read(record);
+                    replay.add(key, type == INSERT ? this.valueCodec.read(record) : null, type == DELETE);
+                }
+                end += 8 + length;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * writes the appended records, stops the sync thread and closes the file
+     */
+    public void close() throws IOException {
+        synchronized (this){
+            this.running = false;
+            this.notifyAll();
+        }
+        try {
+            this.syncer.join();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        } finally {
+            this.channel.close();
+        }
+        if (this.failure != null){
+            throw this.failure;
+        }
+    }
+
+    /**
+     * @return number of fsyncs, every fsync made a group of records durable
+     */
+    public synchronized long getSyncs(){
+        return this.syncs;
+    }
+
+    public synchronized long getBytesWritten(){
+        return this.bytesWritten;
+    }
+
+    /**
+     * @return the log sequence number of the last appended record
+     */
+    public synchronized long getAppendedLsn(){
+        return this.appendedLsn;
+    }
+
+    public synchronized long getDurableLsn(){
+        return this.durableLsn;
+    }
+
+    /**
+     * collects replayed records until REPLAY_BATCH are there, then applies them to the tree
+     */
+    private static class Replay <Key extends Comparable<Key>, Value, M>{
+        final Tree<Key, Value, M> tree;
+        final TreeMap<Key, Value> upserts = new TreeMap<>();
+        final TreeSet<Key> deletes = new TreeSet<>();
+        int batchSize;
+        long records;
+
+        Replay(Tree<Key, Value, M> tree){
+            this.tree = tree;
+        }
+
+        void add(Key key, Value value, boolean delete){
+            if (delete){
+                this.upserts.remove(key);
+                this.deletes.add(key);
+            } else {
+                this.deletes.remove(key);
+                this.upserts.put(key, value);
+            }
+            this.records++;
+            if (++this.batchSize == REPLAY_BATCH){
+                this.apply();
+            }
+        }
+
+        void apply(){
+            ArrayList<Pair<Key, Value>> entries = new ArrayList<>(this.upserts.size());
+            for (Map.Entry<Key, Value> entry : this.upserts.entrySet()){
+                entries.add(new Pair<>(entry.getKey(), entry.getValue()));
+            }
+            this.tree.insertAll(entries);
+            this.tree.deleteAll(this.deletes);
+            this.upserts.clear();
+            this.deletes.clear();
+            this.batchSize = 0;
+        }
+    }
+}